@@ -20,7 +20,6 @@ import android.support.v4.util.Pools;
 import android.util.Log;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 
 /**
@@ -67,6 +66,9 @@ class AdapterHelper implements OpReorderer.Callback {
 
     private int mExistingUpdateTypes = 0;
 
+    // number of items touched by the updates dispatched since the last layout
+    private int mUpdatedItemCount = 0;
+
     AdapterHelper(Callback callback) {
         this(callback, false);
     }
@@ -78,14 +80,82 @@ class AdapterHelper implements OpReorderer.Callback {
     }
 
     AdapterHelper addUpdateOp(UpdateOp... ops) {
-        Collections.addAll(mPendingUpdates, ops);
+        for (UpdateOp op : ops) {
+            if (mergeIntoLastPendingOp(op.cmd, op.positionStart, op.itemCount, op.payload)) {
+                recycleUpdateOp(op);
+            } else {
+                mPendingUpdates.add(op);
+            }
+        }
         return this;
     }
 
+    /**
+     * Tries to fold an update into the last pending op, so that bursts of single item
+     * notifications don't grow the pending list. Only ops of the same type that describe one
+     * contiguous range once combined are merged:
+     * <ul>
+     * <li>an ADD inside or right after the previously added range,</li>
+     * <li>a REMOVE whose range contains or touches the position of the previously removed
+     * range,</li>
+     * <li>an UPDATE with the same payload that touches the previously updated range. Ranges
+     * updated with a payload may not overlap, since each item must get the payload once per
+     * notification.</li>
+     * </ul>
+     * MOVEs are never merged.
+     *
+     * @return True if the update was merged, false if it has to be added as a new op.
+     */
+    private boolean mergeIntoLastPendingOp(int cmd, int positionStart, int itemCount,
+            Object payload) {
+        final int size = mPendingUpdates.size();
+        if (size == 0) {
+            return false;
+        }
+        final UpdateOp last = mPendingUpdates.get(size - 1);
+        if (last.cmd != cmd) {
+            return false;
+        }
+        switch (cmd) {
+            case UpdateOp.ADD:
+                if (positionStart >= last.positionStart
+                        && positionStart <= last.positionStart + last.itemCount) {
+                    last.itemCount += itemCount;
+                    return true;
+                }
+                return false;
+            case UpdateOp.REMOVE:
+                if (last.positionStart >= positionStart
+                        && last.positionStart <= positionStart + itemCount) {
+                    last.positionStart = positionStart;
+                    last.itemCount += itemCount;
+                    return true;
+                }
+                return false;
+            case UpdateOp.UPDATE:
+                if (last.payload != payload) {
+                    return false;
+                }
+                final int lastEnd = last.positionStart + last.itemCount;
+                final int end = positionStart + itemCount;
+                final boolean mergeable = payload == null
+                        ? positionStart <= lastEnd && last.positionStart <= end
+                        : positionStart == lastEnd || end == last.positionStart;
+                if (mergeable) {
+                    last.positionStart = Math.min(last.positionStart, positionStart);
+                    last.itemCount = Math.max(lastEnd, end) - last.positionStart;
+                    return true;
+                }
+                return false;
+        }
+        return false;
+    }
+
     void reset() {
         recycleUpdateOpsAndClearList(mPendingUpdates);
         recycleUpdateOpsAndClearList(mPostponedList);
         mExistingUpdateTypes = 0;
+        mUpdatedItemCount = 0;
     }
 
     void preProcess() {
@@ -463,6 +533,21 @@ class AdapterHelper implements OpReorderer.Callback {
         return (mExistingUpdateTypes & updateTypes) != 0;
     }
 
+    /**
+     * Returns how many items the updates dispatched since the last
+     * {@link #clearUpdatedItemCount()} touched. A move counts as one item.
+     * <p>
+     * Unlike {@link #hasPendingUpdates()}, this stays valid after the updates are pre-processed
+     * in onMeasure, so the layout pass sees the same batch size.
+     */
+    int getUpdatedItemCount() {
+        return mUpdatedItemCount;
+    }
+
+    void clearUpdatedItemCount() {
+        mUpdatedItemCount = 0;
+    }
+
     int findPositionOffset(int position) {
         return findPositionOffset(position, 0);
     }
@@ -503,8 +588,13 @@ class AdapterHelper implements OpReorderer.Callback {
         if (itemCount < 1) {
             return false;
         }
-        mPendingUpdates.add(obtainUpdateOp(UpdateOp.UPDATE, positionStart, itemCount, payload));
         mExistingUpdateTypes |= UpdateOp.UPDATE;
+        mUpdatedItemCount += itemCount;
+        if (mergeIntoLastPendingOp(UpdateOp.UPDATE, positionStart, itemCount, payload)) {
+            // already scheduled by the op it merged into
+            return false;
+        }
+        mPendingUpdates.add(obtainUpdateOp(UpdateOp.UPDATE, positionStart, itemCount, payload));
         return mPendingUpdates.size() == 1;
     }
 
@@ -515,8 +605,13 @@ class AdapterHelper implements OpReorderer.Callback {
         if (itemCount < 1) {
             return false;
         }
-        mPendingUpdates.add(obtainUpdateOp(UpdateOp.ADD, positionStart, itemCount, null));
         mExistingUpdateTypes |= UpdateOp.ADD;
+        mUpdatedItemCount += itemCount;
+        if (mergeIntoLastPendingOp(UpdateOp.ADD, positionStart, itemCount, null)) {
+            // already scheduled by the op it merged into
+            return false;
+        }
+        mPendingUpdates.add(obtainUpdateOp(UpdateOp.ADD, positionStart, itemCount, null));
         return mPendingUpdates.size() == 1;
     }
 
@@ -527,8 +622,13 @@ class AdapterHelper implements OpReorderer.Callback {
         if (itemCount < 1) {
             return false;
         }
-        mPendingUpdates.add(obtainUpdateOp(UpdateOp.REMOVE, positionStart, itemCount, null));
         mExistingUpdateTypes |= UpdateOp.REMOVE;
+        mUpdatedItemCount += itemCount;
+        if (mergeIntoLastPendingOp(UpdateOp.REMOVE, positionStart, itemCount, null)) {
+            // already scheduled by the op it merged into
+            return false;
+        }
+        mPendingUpdates.add(obtainUpdateOp(UpdateOp.REMOVE, positionStart, itemCount, null));
         return mPendingUpdates.size() == 1;
     }
 
@@ -544,6 +644,7 @@ class AdapterHelper implements OpReorderer.Callback {
         }
         mPendingUpdates.add(obtainUpdateOp(UpdateOp.MOVE, from, to, null));
         mExistingUpdateTypes |= UpdateOp.MOVE;
+        mUpdatedItemCount += 1;
         return mPendingUpdates.size() == 1;
     }
 
@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package android.support.v7.widget;
+
+import android.os.Handler;
+import android.support.v4.content.ParallelExecutorCompat;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.Executor;
+
+/**
+ * Creates ViewHolders on a background thread for view types whose Adapter declares creation as
+ * thread safe, and hands them to the {@link RecyclerView.RecycledViewPool} on the UI thread.
+ * <p>
+ * {@link GapWorker} uses this when a prefetch has to give up on creating a holder because the
+ * frame deadline would be missed. Only creation happens off the UI thread, binding and all pool
+ * bookkeeping stay on the UI thread.
+ */
+final class AsyncHolderCreator {
+
+    /**
+     * Upper bound of holders being created in the background for a single view type, no matter
+     * how cheap creating them is.
+     */
+    static final int MAX_IN_FLIGHT_PER_TYPE = 4;
+
+    final Handler mHandler;
+    final Executor mExecutor;
+
+    AsyncHolderCreator() {
+        this(ParallelExecutorCompat.getParallelExecutor());
+    }
+
+    AsyncHolderCreator(Executor executor) {
+        mHandler = new Handler();
+        mExecutor = executor;
+    }
+
+    /**
+     * Returns how many holders of a type are worth creating in the background at once.
+     * <p>
+     * Holders that are cheap to create are batched, so that a fling gets a handful of them
+     * before it needs them. Expensive ones are created one at a time, since a worker can't
+     * deliver more than one of them per frame anyway.
+     *
+     * @param createTimeNs    The pool's median create time for the type.
+     * @param frameIntervalNs The display frame interval.
+     */
+    static int maxInFlight(long createTimeNs, long frameIntervalNs) {
+        if (createTimeNs <= 0 || frameIntervalNs <= 0) {
+            return 1;
+        }
+        final long perFrame = (frameIntervalNs + createTimeNs - 1) / createTimeNs;
+        return (int) Math.max(1, Math.min(MAX_IN_FLIGHT_PER_TYPE, perFrame));
+    }
+
+    /**
+     * Asks for a holder of the given type to be created in the background and put into the
+     * RecyclerView's pool.
+     *
+     * @return true if a creation was scheduled, false if the adapter doesn't support it or
+     * enough holders of the type are already pooled or on the way.
+     */
+    boolean requestCreate(RecyclerView view, int viewType, long frameIntervalNs) {
+        final RecyclerView.Adapter adapter = view.mAdapter;
+        if (adapter == null || !adapter.isViewTypeCreationThreadSafe(viewType)) {
+            return false;
+        }
+        final RecyclerView.RecycledViewPool pool = view.getRecycledViewPool();
+        final RecyclerView.RecycledViewPool.ScrapData scrapData =
+                pool.getScrapDataForType(viewType);
+        final int inFlight = scrapData.mAsyncCreatesInFlight;
+        if (scrapData.mScrapHeap.size() + inFlight >= scrapData.mMaxScrap
+                || inFlight >= maxInFlight(scrapData.mCreateStats.getQuantile(0.5f),
+                        frameIntervalNs)) {
+            return false;
+        }
+        scrapData.mAsyncCreatesInFlight++;
+        mExecutor.execute(new CreateTask(view, adapter, pool, viewType));
+        return true;
+    }
+
+    /**
+     * Created on the UI thread, run on a worker to create the holder, then posted back to the UI
+     * thread to deliver it.
+     */
+    private class CreateTask implements Runnable {
+        final WeakReference<RecyclerView> mView;
+        final RecyclerView.Adapter mAdapter;
+        final RecyclerView.RecycledViewPool mPool;
+        final int mViewType;
+
+        RecyclerView.ViewHolder mHolder;
+        RuntimeException mError;
+        boolean mCreated;
+
+        CreateTask(RecyclerView view, RecyclerView.Adapter adapter,
+                RecyclerView.RecycledViewPool pool, int viewType) {
+            mView = new WeakReference<>(view);
+            mAdapter = adapter;
+            mPool = pool;
+            mViewType = viewType;
+        }
+
+        @Override
+        public void run() {
+            if (!mCreated) {
+                mCreated = true;
+                final RecyclerView view = mView.get();
+                if (view != null) {
+                    try {
+                        mHolder = mAdapter.createViewHolder(view, mViewType);
+                    } catch (RuntimeException e) {
+                        // rethrown on the UI thread, so it crashes like a regular create would
+                        mError = e;
+                    }
+                }
+                mHandler.post(this);
+                return;
+            }
+
+            mPool.getScrapDataForType(mViewType).mAsyncCreatesInFlight--;
+            if (mError != null) {
+                throw mError;
+            }
+            final RecyclerView view = mView.get();
+            if (mHolder == null || view == null || view.mAdapter != mAdapter
+                    || view.getRecycledViewPool() != mPool) {
+                // adapter or pool changed while creating, holder may not be compatible
+                return;
+            }
+            final RecyclerView innerView = RecyclerView.findNestedRecyclerView(mHolder.itemView);
+            if (innerView != null) {
+                mHolder.mNestedRecyclerView = new WeakReference<>(innerView);
+            }
+            mPool.putRecycledView(mHolder);
+        }
+    }
+}
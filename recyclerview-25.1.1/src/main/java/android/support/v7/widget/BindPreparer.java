@@ -0,0 +1,158 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package android.support.v7.widget;
+
+import android.os.Handler;
+import android.support.v4.content.ParallelExecutorCompat;
+import android.util.SparseArray;
+import android.util.SparseBooleanArray;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Runs {@link RecyclerView.Adapter#prepareBind(int)} on a background thread for positions
+ * {@link GapWorker} is about to prefetch, and keeps the resulting bind models on the UI thread
+ * until the positions get bound.
+ * <p>
+ * Models are keyed by adapter position, so any adapter change drops all of them, including the
+ * ones still being prepared.
+ */
+final class BindPreparer {
+
+    /**
+     * Upper bound of models kept or being prepared at once.
+     */
+    static final int MAX_PREPARED = 32;
+
+    final Handler mHandler;
+    final Executor mExecutor;
+
+    final SparseArray<Object> mPrepared = new SparseArray<>();
+    final SparseBooleanArray mInFlight = new SparseBooleanArray();
+
+    // bumped on every adapter change, results of older generations are dropped
+    int mGeneration;
+
+    BindPreparer() {
+        this(ParallelExecutorCompat.getParallelExecutor());
+    }
+
+    BindPreparer(Executor executor) {
+        mHandler = new Handler();
+        mExecutor = executor;
+    }
+
+    /**
+     * Starts preparing the bind model of the given position unless it is already prepared or
+     * being prepared.
+     *
+     * @return true if a preparation was scheduled.
+     */
+    boolean requestPrepare(RecyclerView.Adapter adapter, int position) {
+        if (mPrepared.indexOfKey(position) >= 0 || mInFlight.get(position)) {
+            return false;
+        }
+        if (mPrepared.size() + mInFlight.size() >= MAX_PREPARED) {
+            if (mPrepared.size() == 0) {
+                return false;
+            }
+            evictFarthest(position);
+        }
+        mInFlight.put(position, true);
+        mExecutor.execute(new PrepareTask(adapter, position, mGeneration));
+        return true;
+    }
+
+    /**
+     * Drops the prepared model that is the farthest from the given position, which is the one
+     * least likely to be bound soon.
+     */
+    private void evictFarthest(int position) {
+        final int first = mPrepared.keyAt(0);
+        final int last = mPrepared.keyAt(mPrepared.size() - 1);
+        mPrepared.removeAt(position - first > last - position ? 0 : mPrepared.size() - 1);
+    }
+
+    /**
+     * Returns the prepared model of the given position, or null if there is none.
+     */
+    Object peekPrepared(int position) {
+        return mPrepared.get(position);
+    }
+
+    /**
+     * Removes the prepared model of the given position once it has been applied.
+     */
+    void removePrepared(int position) {
+        mPrepared.delete(position);
+    }
+
+    /**
+     * Drops all models, called when the adapter or its data changes.
+     */
+    void invalidate() {
+        mGeneration++;
+        mPrepared.clear();
+        mInFlight.clear();
+    }
+
+    /**
+     * Created on the UI thread, run on a worker to prepare the model, then posted back to the UI
+     * thread to deliver it.
+     */
+    private class PrepareTask implements Runnable {
+        final RecyclerView.Adapter mAdapter;
+        final int mPosition;
+        final int mTaskGeneration;
+
+        Object mModel;
+        RuntimeException mError;
+        boolean mDone;
+
+        PrepareTask(RecyclerView.Adapter adapter, int position, int generation) {
+            mAdapter = adapter;
+            mPosition = position;
+            mTaskGeneration = generation;
+        }
+
+        @Override
+        public void run() {
+            if (!mDone) {
+                mDone = true;
+                try {
+                    mModel = mAdapter.prepareBind(mPosition);
+                } catch (RuntimeException e) {
+                    // rethrown on the UI thread, so it crashes like a regular bind would
+                    mError = e;
+                }
+                mHandler.post(this);
+                return;
+            }
+
+            if (mTaskGeneration != mGeneration) {
+                // adapter changed while preparing, position may point to another item
+                return;
+            }
+            mInFlight.delete(mPosition);
+            if (mError != null) {
+                throw mError;
+            }
+            if (mModel != null) {
+                mPrepared.put(mPosition, mModel);
+            }
+        }
+    }
+}
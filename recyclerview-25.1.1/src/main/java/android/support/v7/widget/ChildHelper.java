@@ -21,6 +21,7 @@ import android.view.View;
 import android.view.ViewGroup;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -390,7 +391,9 @@ class ChildHelper {
     }
 
     /**
-     * Bitset implementation that provides methods to offset indices.
+     * Bitset stored in an array of words. Keeps the number of set bits before each word, so that
+     * {@link #countOnesBefore(int)}, called for every child lookup, doesn't need to count them
+     * again until a bit in an earlier word changes.
      */
     static class Bucket {
 
@@ -398,115 +401,155 @@ class ChildHelper {
 
         final static long LAST_BIT = 1L << (Long.SIZE - 1);
 
-        long mData = 0;
-
-        Bucket next;
-
-        void set(int index) {
-            if (index >= BITS_PER_WORD) {
-                ensureNext();
-                next.set(index - BITS_PER_WORD);
-            } else {
-                mData |= 1L << index;
+        long[] mWords = new long[1];
+
+        /**
+         * Words in use, all words from this index on are 0.
+         */
+        int mWordCount = 0;
+
+        /**
+         * mOnesBefore[i] is the number of set bits in words 0 to i - 1, valid for i smaller than
+         * mOnesBeforeValidCount.
+         */
+        int[] mOnesBefore = new int[1];
+
+        int mOnesBeforeValidCount = 0;
+
+        private void ensureWordCount(int wordCount) {
+            if (wordCount > mWords.length) {
+                final int newLength = Math.max(wordCount, mWords.length * 2);
+                final long[] words = new long[newLength];
+                System.arraycopy(mWords, 0, words, 0, mWordCount);
+                mWords = words;
+                final int[] onesBefore = new int[newLength];
+                System.arraycopy(mOnesBefore, 0, onesBefore, 0, mOnesBeforeValidCount);
+                mOnesBefore = onesBefore;
+            }
+            if (wordCount > mWordCount) {
+                mWordCount = wordCount;
             }
         }
 
-        private void ensureNext() {
-            if (next == null) {
-                next = new Bucket();
+        /**
+         * Called when word and later words changed.
+         */
+        private void invalidateOnesBefore(int word) {
+            if (mOnesBeforeValidCount > word + 1) {
+                mOnesBeforeValidCount = word + 1;
             }
         }
 
+        void set(int index) {
+            final int word = index / BITS_PER_WORD;
+            ensureWordCount(word + 1);
+            mWords[word] |= 1L << index;
+            invalidateOnesBefore(word);
+        }
+
         void clear(int index) {
-            if (index >= BITS_PER_WORD) {
-                if (next != null) {
-                    next.clear(index - BITS_PER_WORD);
-                }
-            } else {
-                mData &= ~(1L << index);
+            final int word = index / BITS_PER_WORD;
+            if (word < mWordCount) {
+                mWords[word] &= ~(1L << index);
+                invalidateOnesBefore(word);
             }
-
         }
 
         boolean get(int index) {
-            if (index >= BITS_PER_WORD) {
-                ensureNext();
-                return next.get(index - BITS_PER_WORD);
-            } else {
-                return (mData & (1L << index)) != 0;
-            }
+            final int word = index / BITS_PER_WORD;
+            return word < mWordCount && (mWords[word] & (1L << index)) != 0;
         }
 
         void reset() {
-            mData = 0;
-            if (next != null) {
-                next.reset();
-            }
+            Arrays.fill(mWords, 0, mWordCount, 0);
+            mWordCount = 0;
+            mOnesBeforeValidCount = 0;
         }
 
         void insert(int index, boolean value) {
-            if (index >= BITS_PER_WORD) {
-                ensureNext();
-                next.insert(index - BITS_PER_WORD, value);
-            } else {
-                final boolean lastBit = (mData & LAST_BIT) != 0;
-                long mask = (1L << index) - 1;
-                final long before = mData & mask;
-                final long after = ((mData & ~mask)) << 1;
-                mData = before | after;
+            final int word = index / BITS_PER_WORD;
+            if (word >= mWordCount) {
+                // nothing to shift
                 if (value) {
                     set(index);
-                } else {
-                    clear(index);
-                }
-                if (lastBit || next != null) {
-                    ensureNext();
-                    next.insert(0, lastBit);
                 }
+                return;
             }
+            final long[] words = mWords;
+            long carry = words[word] & LAST_BIT;
+            final long mask = (1L << index) - 1;
+            words[word] = (words[word] & mask) | ((words[word] & ~mask) << 1)
+                    | (value ? 1L << index : 0);
+            for (int i = word + 1; i < mWordCount; i++) {
+                final long nextCarry = words[i] & LAST_BIT;
+                words[i] = (words[i] << 1) | (carry != 0 ? 1 : 0);
+                carry = nextCarry;
+            }
+            if (carry != 0) {
+                ensureWordCount(mWordCount + 1);
+                mWords[mWordCount - 1] = 1;
+            }
+            invalidateOnesBefore(word);
         }
 
         boolean remove(int index) {
-            if (index >= BITS_PER_WORD) {
-                ensureNext();
-                return next.remove(index - BITS_PER_WORD);
-            } else {
-                long mask = (1L << index);
-                final boolean value = (mData & mask) != 0;
-                mData &= ~mask;
-                mask = mask - 1;
-                final long before = mData & mask;
-                // cannot use >> because it adds one.
-                final long after = Long.rotateRight(mData & ~mask, 1);
-                mData = before | after;
-                if (next != null) {
-                    if (next.get(0)) {
-                        set(BITS_PER_WORD - 1);
-                    }
-                    next.remove(0);
+            final int word = index / BITS_PER_WORD;
+            if (word >= mWordCount) {
+                return false;
+            }
+            final long[] words = mWords;
+            long mask = (1L << index);
+            final boolean value = (words[word] & mask) != 0;
+            words[word] &= ~mask;
+            mask = mask - 1;
+            final long before = words[word] & mask;
+            final long after = (words[word] & ~mask) >>> 1;
+            words[word] = before | after;
+            for (int i = word + 1; i < mWordCount; i++) {
+                if ((words[i] & 1) != 0) {
+                    words[i - 1] |= LAST_BIT;
                 }
-                return value;
+                words[i] >>>= 1;
             }
+            invalidateOnesBefore(word);
+            return value;
         }
 
         int countOnesBefore(int index) {
-            if (next == null) {
-                if (index >= BITS_PER_WORD) {
-                    return Long.bitCount(mData);
+            int word = index / BITS_PER_WORD;
+            if (word >= mWordCount) {
+                if (mWordCount == 0) {
+                    return 0;
                 }
-                return Long.bitCount(mData & ((1L << index) - 1));
+                // everything set counts, that is all bits up to the end of the last word
+                word = mWordCount - 1;
+                index = (word + 1) * BITS_PER_WORD;
             }
-            if (index < BITS_PER_WORD) {
-                return Long.bitCount(mData & ((1L << index) - 1));
-            } else {
-                return next.countOnesBefore(index - BITS_PER_WORD) + Long.bitCount(mData);
+            for (int i = mOnesBeforeValidCount; i <= word; i++) {
+                mOnesBefore[i] = i == 0 ? 0 : mOnesBefore[i - 1] + Long.bitCount(mWords[i - 1]);
+            }
+            if (mOnesBeforeValidCount <= word) {
+                mOnesBeforeValidCount = word + 1;
             }
+            final int bit = index - word * BITS_PER_WORD;
+            final long bitsBefore = bit == BITS_PER_WORD ? mWords[word]
+                    : mWords[word] & ((1L << bit) - 1);
+            return mOnesBefore[word] + Long.bitCount(bitsBefore);
         }
 
         @Override
         public String toString() {
-            return next == null ? Long.toBinaryString(mData)
-                    : next.toString() + "xx" + Long.toBinaryString(mData);
+            if (mWordCount == 0) {
+                return Long.toBinaryString(0);
+            }
+            final StringBuilder sb = new StringBuilder();
+            for (int i = mWordCount - 1; i >= 0; i--) {
+                sb.append(Long.toBinaryString(mWords[i]));
+                if (i > 0) {
+                    sb.append("xx");
+                }
+            }
+            return sb.toString();
         }
     }
 
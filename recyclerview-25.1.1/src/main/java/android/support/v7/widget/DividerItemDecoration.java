@@ -21,6 +21,7 @@ import android.annotation.SuppressLint;
 import android.content.Context;
 import android.content.res.TypedArray;
 import android.graphics.Canvas;
+import android.graphics.Paint;
 import android.graphics.Rect;
 import android.graphics.drawable.Drawable;
 import android.support.annotation.NonNull;
@@ -54,6 +55,18 @@ public class DividerItemDecoration extends RecyclerView.ItemDecoration {
 
     private final Rect mBounds = new Rect();
 
+    /**
+     * Paint of the solid color divider, null when the divider is drawn with a drawable.
+     */
+    private Paint mSolidPaint;
+
+    private int mSolidSize;
+
+    /**
+     * Coordinates of the solid color divider lines drawn in one batch, 4 per line.
+     */
+    private float[] mLines = new float[0];
+
     /**
      * Creates a divider {@link RecyclerView.ItemDecoration} that can be used with a
      * {@link LinearLayoutManager}.
@@ -92,6 +105,30 @@ public class DividerItemDecoration extends RecyclerView.ItemDecoration {
             throw new IllegalArgumentException("Drawable cannot be null.");
         }
         mDivider = drawable;
+        mSolidPaint = null;
+    }
+
+    /**
+     * Sets a solid color for this divider, replacing its {@link Drawable}.
+     * <p>
+     * Solid color dividers of all items are drawn in a single batch, skipping the ones that are
+     * clipped, which is much cheaper than drawing a drawable per item on long lists.
+     *
+     * @param color The color of the divider, as an ARGB int.
+     * @param size  The thickness of the divider in pixels.
+     */
+    public void setSolidColor(int color, int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("Divider size cannot be negative.");
+        }
+        if (mSolidPaint == null) {
+            mSolidPaint = new Paint();
+            mSolidPaint.setStyle(Paint.Style.STROKE);
+            mSolidPaint.setStrokeCap(Paint.Cap.BUTT);
+        }
+        mSolidPaint.setColor(color);
+        mSolidPaint.setStrokeWidth(size);
+        mSolidSize = size;
     }
 
     @Override
@@ -99,7 +136,9 @@ public class DividerItemDecoration extends RecyclerView.ItemDecoration {
         if (parent.getLayoutManager() == null) {
             return;
         }
-        if (mOrientation == VERTICAL) {
+        if (mSolidPaint != null) {
+            drawSolid(c, parent);
+        } else if (mOrientation == VERTICAL) {
             drawVertical(c, parent);
         } else {
             drawHorizontal(c, parent);
@@ -160,13 +199,80 @@ public class DividerItemDecoration extends RecyclerView.ItemDecoration {
         canvas.restore();
     }
 
+    /**
+     * Draws the solid color dividers of all children that are not clipped out as a single batch
+     * of lines, each one as thick as the divider and centered on it.
+     */
+    @SuppressLint("NewApi")
+    private void drawSolid(Canvas canvas, RecyclerView parent) {
+        if (mSolidSize == 0) {
+            return;
+        }
+        final boolean vertical = mOrientation == VERTICAL;
+        final int start;
+        final int end;
+        final int crossStart;
+        final int crossEnd;
+        if (parent.getClipToPadding()) {
+            start = vertical ? parent.getPaddingTop() : parent.getPaddingLeft();
+            end = vertical ? parent.getHeight() - parent.getPaddingBottom()
+                    : parent.getWidth() - parent.getPaddingRight();
+            crossStart = vertical ? parent.getPaddingLeft() : parent.getPaddingTop();
+            crossEnd = vertical ? parent.getWidth() - parent.getPaddingRight()
+                    : parent.getHeight() - parent.getPaddingBottom();
+        } else {
+            start = 0;
+            end = vertical ? parent.getHeight() : parent.getWidth();
+            crossStart = 0;
+            crossEnd = vertical ? parent.getWidth() : parent.getHeight();
+        }
+
+        final int childCount = parent.getChildCount();
+        if (mLines.length < childCount * 4) {
+            mLines = new float[childCount * 4];
+        }
+        int count = 0;
+        for (int i = 0; i < childCount; i++) {
+            final View child = parent.getChildAt(i);
+            parent.getDecoratedBoundsWithMargins(child, mBounds);
+            final int dividerEnd = vertical
+                    ? mBounds.bottom + Math.round(ViewCompat.getTranslationY(child))
+                    : mBounds.right + Math.round(ViewCompat.getTranslationX(child));
+            final int dividerStart = dividerEnd - mSolidSize;
+            if (dividerEnd <= start || dividerStart >= end) {
+                continue; // clipped out
+            }
+            final float center = dividerStart + mSolidSize / 2f;
+            mLines[count++] = vertical ? crossStart : center;
+            mLines[count++] = vertical ? center : crossStart;
+            mLines[count++] = vertical ? crossEnd : center;
+            mLines[count++] = vertical ? center : crossEnd;
+        }
+        if (count == 0) {
+            return;
+        }
+        canvas.save();
+        if (parent.getClipToPadding()) {
+            if (vertical) {
+                canvas.clipRect(crossStart, start, crossEnd, end);
+            } else {
+                canvas.clipRect(start, crossStart, end, crossEnd);
+            }
+        }
+        canvas.drawLines(mLines, 0, count, mSolidPaint);
+        canvas.restore();
+    }
+
     @Override
     public void getItemOffsets(Rect outRect, View view, RecyclerView parent,
             RecyclerView.State state) {
+        final int size;
         if (mOrientation == VERTICAL) {
-            outRect.set(0, 0, 0, mDivider.getIntrinsicHeight());
+            size = mSolidPaint != null ? mSolidSize : mDivider.getIntrinsicHeight();
+            outRect.set(0, 0, 0, size);
         } else {
-            outRect.set(0, 0, mDivider.getIntrinsicWidth(), 0);
+            size = mSolidPaint != null ? mSolidSize : mDivider.getIntrinsicWidth();
+            outRect.set(0, 0, size, 0);
         }
     }
 }
@@ -0,0 +1,353 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.support.v7.widget;
+
+import android.support.annotation.Nullable;
+import android.util.SparseArray;
+
+import java.util.Arrays;
+
+/**
+ * Measures the work a RecyclerView does on the UI thread, frame by frame, from the same points
+ * it reports to systrace: scrolling, layout, adapter updates, prefetch, and creating and binding
+ * ViewHolders, the last two also per view type.
+ * <p>
+ * Attach an instance with {@link RecyclerView#setFrameWorkStats(FrameWorkStats)}. An instance
+ * must not be shared by several RecyclerViews. When no instance is attached, the RecyclerView
+ * does no bookkeeping at all.
+ * <p>
+ * A frame ends when the RecyclerView draws. Sections nest: creates and binds are also counted in
+ * the scroll, layout or prefetch section they happen in, and a layout run by a scroll is also
+ * counted in the scroll. The frame's work is the time spent in outermost sections other than
+ * prefetch, which runs in the idle time after a frame and is counted towards the frame that
+ * follows it. A frame is over budget when its work exceeds {@link #getFrameBudgetNs()}.
+ * <pre>
+ *     stats.setOnFrameListener(new FrameWorkStats.OnFrameListener() {
+ *         public void onFrame(FrameWorkStats stats, long frameTimeMs, boolean overBudget) {
+ *             if (overBudget) {
+ *                 report(stats.getLastFrameWorkNs(),
+ *                         stats.getLastFrameCount(FrameWorkStats.SECTION_CREATE));
+ *             }
+ *         }
+ *     });
+ * </pre>
+ */
+public class FrameWorkStats {
+
+    /**
+     * Scrolling, by touch, fling or smooth scroll.
+     */
+    public static final int SECTION_SCROLL = 0;
+
+    /**
+     * A layout pass.
+     */
+    public static final int SECTION_LAYOUT = 1;
+
+    /**
+     * Applying adapter updates without a full layout pass.
+     */
+    public static final int SECTION_ADAPTER_UPDATES = 2;
+
+    /**
+     * Prefetching one position.
+     */
+    public static final int SECTION_PREFETCH = 3;
+
+    /**
+     * Creating a ViewHolder.
+     */
+    public static final int SECTION_CREATE = 4;
+
+    /**
+     * Binding a ViewHolder.
+     */
+    public static final int SECTION_BIND = 5;
+
+    static final int SECTION_COUNT = 6;
+
+    /**
+     * Default budget, a frame at 60 fps.
+     */
+    public static final long DEFAULT_FRAME_BUDGET_NS = 1000000000L / 60;
+
+    /**
+     * Called on the UI thread after each frame drawn by the RecyclerView.
+     */
+    public interface OnFrameListener {
+        /**
+         * @param stats       The stats, whose <code>getLastFrame</code> methods describe the frame.
+         * @param frameTimeMs The drawing time of the frame.
+         * @param overBudget  True if the frame's work exceeded the budget.
+         */
+        void onFrame(FrameWorkStats stats, long frameTimeMs, boolean overBudget);
+    }
+
+    // sections begun but not ended yet, innermost last
+    private int[] mOpenSections = new int[8];
+    private long[] mOpenStartNs = new long[8];
+    private int mOpenCount;
+
+    private Frame mFrame = new Frame();
+    private Frame mLastFrame = new Frame();
+
+    private final long[] mTotalDurationNs = new long[SECTION_COUNT];
+    private final int[] mTotalCounts = new int[SECTION_COUNT];
+    private int mFrameCount;
+    private int mOverBudgetFrameCount;
+
+    private long mFrameBudgetNs;
+    private OnFrameListener mListener;
+
+    public FrameWorkStats() {
+        this(DEFAULT_FRAME_BUDGET_NS);
+    }
+
+    /**
+     * @param frameBudgetNs How long the RecyclerView's work may take in a frame before the frame
+     *                      is flagged as over budget.
+     */
+    public FrameWorkStats(long frameBudgetNs) {
+        mFrameBudgetNs = frameBudgetNs;
+    }
+
+    /**
+     * Sets how long the RecyclerView's work may take in a frame before the frame is flagged as
+     * over budget.
+     */
+    public void setFrameBudgetNs(long frameBudgetNs) {
+        mFrameBudgetNs = frameBudgetNs;
+    }
+
+    public long getFrameBudgetNs() {
+        return mFrameBudgetNs;
+    }
+
+    public void setOnFrameListener(@Nullable OnFrameListener listener) {
+        mListener = listener;
+    }
+
+    void beginSection(int section) {
+        if (mOpenCount == mOpenSections.length) {
+            mOpenSections = Arrays.copyOf(mOpenSections, mOpenCount * 2);
+            mOpenStartNs = Arrays.copyOf(mOpenStartNs, mOpenCount * 2);
+        }
+        mOpenSections[mOpenCount] = section;
+        mOpenStartNs[mOpenCount] = System.nanoTime();
+        mOpenCount++;
+    }
+
+    /**
+     * Ends the innermost open section, which must be the given one.
+     *
+     * @param viewType The view type for {@link #SECTION_CREATE} and {@link #SECTION_BIND},
+     *                 ignored otherwise.
+     */
+    void endSection(int section, int viewType) {
+        if (mOpenCount == 0 || mOpenSections[mOpenCount - 1] != section) {
+            // attached while the section was open, or a section threw before ending.
+            mOpenCount = 0;
+            return;
+        }
+        mOpenCount--;
+        final long durationNs = System.nanoTime() - mOpenStartNs[mOpenCount];
+        mTotalDurationNs[section] += durationNs;
+        mTotalCounts[section]++;
+        mFrame.add(section, viewType, durationNs);
+        if (mOpenCount == 0 && section != SECTION_PREFETCH) {
+            mFrame.mWorkNs += durationNs;
+        }
+    }
+
+    void recordPrefetchHit() {
+        mFrame.mPrefetchHits++;
+    }
+
+    void onFrameDrawn(long frameTimeMs) {
+        final Frame finished = mFrame;
+        mFrame = mLastFrame;
+        mLastFrame = finished;
+        mFrame.clear();
+        mFrameCount++;
+        final boolean overBudget = finished.mWorkNs > mFrameBudgetNs;
+        if (overBudget) {
+            mOverBudgetFrameCount++;
+        }
+        if (mListener != null) {
+            mListener.onFrame(this, frameTimeMs, overBudget);
+        }
+    }
+
+    /**
+     * Returns the time spent in the last frame in outermost sections other than prefetch.
+     */
+    public long getLastFrameWorkNs() {
+        return mLastFrame.mWorkNs;
+    }
+
+    /**
+     * Returns the time spent in the given section in the last frame.
+     *
+     * @param section One of the <code>SECTION_</code> constants.
+     */
+    public long getLastFrameDurationNs(int section) {
+        return mLastFrame.mDurationNs[section];
+    }
+
+    /**
+     * Returns how many times the given section ran in the last frame.
+     *
+     * @param section One of the <code>SECTION_</code> constants.
+     */
+    public int getLastFrameCount(int section) {
+        return mLastFrame.mCounts[section];
+    }
+
+    /**
+     * Returns the time spent creating or binding ViewHolders of the given type in the last frame.
+     *
+     * @param viewType The view type.
+     * @param section  {@link #SECTION_CREATE} or {@link #SECTION_BIND}.
+     */
+    public long getLastFrameDurationNs(int viewType, int section) {
+        final TypeStats typeStats = mLastFrame.mTypeStats.get(viewType);
+        return typeStats == null ? 0 : typeStats.durationNs(section);
+    }
+
+    /**
+     * Returns how many ViewHolders of the given type were created or bound in the last frame.
+     *
+     * @param viewType The view type.
+     * @param section  {@link #SECTION_CREATE} or {@link #SECTION_BIND}.
+     */
+    public int getLastFrameCount(int viewType, int section) {
+        final TypeStats typeStats = mLastFrame.mTypeStats.get(viewType);
+        return typeStats == null ? 0 : typeStats.count(section);
+    }
+
+    /**
+     * Returns how many prefetched ViewHolders were laid out in the last frame.
+     */
+    public int getLastFramePrefetchHits() {
+        return mLastFrame.mPrefetchHits;
+    }
+
+    /**
+     * Returns the time spent in the given section since this instance was created or last reset.
+     *
+     * @param section One of the <code>SECTION_</code> constants.
+     */
+    public long getTotalDurationNs(int section) {
+        return mTotalDurationNs[section];
+    }
+
+    /**
+     * Returns how many times the given section ran since this instance was created or last
+     * reset.
+     *
+     * @param section One of the <code>SECTION_</code> constants.
+     */
+    public int getTotalCount(int section) {
+        return mTotalCounts[section];
+    }
+
+    /**
+     * Returns how many frames were drawn since this instance was created or last reset.
+     */
+    public int getFrameCount() {
+        return mFrameCount;
+    }
+
+    /**
+     * Returns how many of the drawn frames were over budget.
+     */
+    public int getOverBudgetFrameCount() {
+        return mOverBudgetFrameCount;
+    }
+
+    /**
+     * Clears all durations and counts.
+     */
+    public void reset() {
+        mFrame.clear();
+        mLastFrame.clear();
+        Arrays.fill(mTotalDurationNs, 0);
+        Arrays.fill(mTotalCounts, 0);
+        mFrameCount = 0;
+        mOverBudgetFrameCount = 0;
+    }
+
+    private static class TypeStats {
+        long mCreateNs;
+        long mBindNs;
+        int mCreateCount;
+        int mBindCount;
+
+        long durationNs(int section) {
+            return section == SECTION_CREATE ? mCreateNs : section == SECTION_BIND ? mBindNs : 0;
+        }
+
+        int count(int section) {
+            return section == SECTION_CREATE ? mCreateCount
+                    : section == SECTION_BIND ? mBindCount : 0;
+        }
+
+        void clear() {
+            mCreateNs = mBindNs = 0;
+            mCreateCount = mBindCount = 0;
+        }
+    }
+
+    private static class Frame {
+        final long[] mDurationNs = new long[SECTION_COUNT];
+        final int[] mCounts = new int[SECTION_COUNT];
+        final SparseArray<TypeStats> mTypeStats = new SparseArray<>();
+        long mWorkNs;
+        int mPrefetchHits;
+
+        void add(int section, int viewType, long durationNs) {
+            mDurationNs[section] += durationNs;
+            mCounts[section]++;
+            if (section != SECTION_CREATE && section != SECTION_BIND) {
+                return;
+            }
+            TypeStats typeStats = mTypeStats.get(viewType);
+            if (typeStats == null) {
+                typeStats = new TypeStats();
+                mTypeStats.put(viewType, typeStats);
+            }
+            if (section == SECTION_CREATE) {
+                typeStats.mCreateNs += durationNs;
+                typeStats.mCreateCount++;
+            } else {
+                typeStats.mBindNs += durationNs;
+                typeStats.mBindCount++;
+            }
+        }
+
+        void clear() {
+            Arrays.fill(mDurationNs, 0);
+            Arrays.fill(mCounts, 0);
+            // keep the entries, view types rarely change
+            for (int i = 0; i < mTypeStats.size(); i++) {
+                mTypeStats.valueAt(i).clear();
+            }
+            mWorkNs = 0;
+            mPrefetchHits = 0;
+        }
+    }
+}
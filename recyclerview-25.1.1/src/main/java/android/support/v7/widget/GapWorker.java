@@ -33,6 +33,11 @@ final class GapWorker implements Runnable {
     long mPostTimeNs;
     long mFrameIntervalNs;
 
+    /**
+     * Created lazily, the first time a prefetch can't create a holder in time.
+     */
+    AsyncHolderCreator mAsyncHolderCreator;
+
     static class Task {
         public boolean immediate;
         public int viewVelocity;
@@ -266,6 +271,7 @@ final class GapWorker implements Runnable {
             return null;
         }
 
+        view.beginFrameWorkSection(FrameWorkStats.SECTION_PREFETCH);
         RecyclerView.Recycler recycler = view.mRecycler;
         RecyclerView.ViewHolder holder = recycler.tryGetViewHolderForPositionByDeadline(
                 position, false, deadlineNs);
@@ -274,6 +280,7 @@ final class GapWorker implements Runnable {
             if (holder.isBound()) {
                 // Only give the view a chance to go into the cache if binding succeeded
                 // Note that we must use public method, since item may need cleanup
+                holder.addFlags(RecyclerView.ViewHolder.FLAG_PREFETCHED);
                 recycler.recycleView(holder.itemView);
             } else {
                 // Didn't bind, so we can't cache the view, but it will stay in the pool until
@@ -282,7 +289,20 @@ final class GapWorker implements Runnable {
                 // type, during this GapWorker prefetch pass).
                 recycler.addViewHolderToRecycledViewPool(holder, false);
             }
+        } else if (deadlineNs != RecyclerView.FOREVER_NS) {
+            // Creating didn't fit before the deadline. If the adapter allows it, create the
+            // holder in the background so a later prefetch or layout finds it in the pool. The
+            // view type is read at the adapter position, as the adapter may have pending updates.
+            final int offsetPosition = view.mAdapterHelper.findPositionOffset(position);
+            if (offsetPosition >= 0 && offsetPosition < view.mAdapter.getItemCount()) {
+                if (mAsyncHolderCreator == null) {
+                    mAsyncHolderCreator = new AsyncHolderCreator();
+                }
+                mAsyncHolderCreator.requestCreate(view,
+                        view.mAdapter.getItemViewType(offsetPosition), mFrameIntervalNs);
+            }
         }
+        view.endFrameWorkSection(FrameWorkStats.SECTION_PREFETCH);
         return holder;
     }
 
@@ -319,13 +339,17 @@ final class GapWorker implements Runnable {
         }
     }
 
-    private void flushTaskWithDeadline(Task task, long deadlineNs) {
+    /**
+     * @return True if the task's holder was bound and put in the cache.
+     */
+    private boolean flushTaskWithDeadline(Task task, long deadlineNs) {
         long taskDeadlineNs = task.immediate ? RecyclerView.FOREVER_NS : deadlineNs;
         RecyclerView.ViewHolder holder = prefetchPositionWithDeadline(task.view,
                 task.position, taskDeadlineNs);
         if (holder != null && holder.mNestedRecyclerView != null) {
             prefetchInnerRecyclerViewWithDeadline(holder.mNestedRecyclerView.get(), deadlineNs);
         }
+        return holder != null && holder.isBound();
     }
 
     private void flushTasksWithDeadline(long deadlineNs) {
@@ -334,7 +358,12 @@ final class GapWorker implements Runnable {
             if (task.view == null) {
                 break; // done with populated tasks
             }
-            flushTaskWithDeadline(task, deadlineNs);
+            if (!flushTaskWithDeadline(task, deadlineNs) && !task.immediate
+                    && !isPrefetchPositionAttached(task.view, task.position)) {
+                // the bind didn't fit in this gap, let a worker prepare its model so that it
+                // is ready in a later one
+                task.view.requestBindPreparation(task.position);
+            }
             task.clear();
         }
     }
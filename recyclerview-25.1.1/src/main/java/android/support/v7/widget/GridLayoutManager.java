@@ -111,6 +111,19 @@ public class GridLayoutManager extends LinearLayoutManager {
         super.setStackFromEnd(false);
     }
 
+    /**
+     * Not supported by GridLayoutManager, since the layout direction is sized by rows rather than
+     * by items.
+     */
+    @Override
+    public void setItemSizeIndexEnabled(boolean enabled) {
+        if (enabled) {
+            throw new UnsupportedOperationException(
+                    "GridLayoutManager does not support an item size index");
+        }
+        super.setItemSizeIndexEnabled(false);
+    }
+
     @Override
     public int getRowCountForAccessibility(RecyclerView.Recycler recycler,
             RecyclerView.State state) {
@@ -197,7 +210,7 @@ public class GridLayoutManager extends LinearLayoutManager {
 
     @Override
     public void onItemsAdded(RecyclerView recyclerView, int positionStart, int itemCount) {
-        mSpanSizeLookup.invalidateSpanIndexCache();
+        mSpanSizeLookup.invalidateSpanIndexCacheFrom(positionStart);
     }
 
     @Override
@@ -207,18 +220,18 @@ public class GridLayoutManager extends LinearLayoutManager {
 
     @Override
     public void onItemsRemoved(RecyclerView recyclerView, int positionStart, int itemCount) {
-        mSpanSizeLookup.invalidateSpanIndexCache();
+        mSpanSizeLookup.invalidateSpanIndexCacheFrom(positionStart);
     }
 
     @Override
     public void onItemsUpdated(RecyclerView recyclerView, int positionStart, int itemCount,
             Object payload) {
-        mSpanSizeLookup.invalidateSpanIndexCache();
+        mSpanSizeLookup.invalidateSpanIndexCacheFrom(positionStart);
     }
 
     @Override
     public void onItemsMoved(RecyclerView recyclerView, int from, int to, int itemCount) {
-        mSpanSizeLookup.invalidateSpanIndexCache();
+        mSpanSizeLookup.invalidateSpanIndexCacheFrom(Math.min(from, to));
     }
 
     @Override
@@ -507,13 +520,26 @@ public class GridLayoutManager extends LinearLayoutManager {
     @Override
     void collectPrefetchPositionsForLayoutState(RecyclerView.State state, LayoutState layoutState,
             LayoutPrefetchRegistry layoutPrefetchRegistry) {
+        // collect the span group that scrolls in next, the same way layoutChunk fills it, so that
+        // every item of the upcoming row or column gets prefetched and none of the one after.
         int remainingSpan = mSpanCount;
+        if (layoutState.mItemDirection != LayoutState.ITEM_DIRECTION_TAIL
+                && layoutState.hasMore(state)) {
+            // walking backwards, the first item is the last one of its span group. Prefetch
+            // happens outside of pre-layout, so this is what layoutChunk's lookup would return.
+            final int pos = layoutState.mCurrentPosition;
+            remainingSpan = mSpanSizeLookup.getCachedSpanIndex(pos, mSpanCount)
+                    + mSpanSizeLookup.getSpanSize(pos);
+        }
         int count = 0;
         while (count < mSpanCount && layoutState.hasMore(state) && remainingSpan > 0) {
             final int pos = layoutState.mCurrentPosition;
+            remainingSpan -= mSpanSizeLookup.getSpanSize(pos);
+            if (remainingSpan < 0) {
+                break; // item belongs to the following span group
+            }
+            // the whole group comes in at once, at the distance of its first item
             layoutPrefetchRegistry.addPosition(pos, layoutState.mScrollingOffset);
-            final int spanSize = mSpanSizeLookup.getSpanSize(pos);
-            remainingSpan -= spanSize;
             layoutState.mCurrentPosition += layoutState.mItemDirection;
             count++;
         }
@@ -832,6 +858,25 @@ public class GridLayoutManager extends LinearLayoutManager {
 
         private boolean mCacheSpanIndices = false;
 
+        /**
+         * Distance between two positions whose span group state is cached.
+         */
+        private static final int SPAN_GROUP_CHECKPOINT_INTERVAL = 32;
+
+        private boolean mCacheSpanGroupIndices = false;
+
+        // The span and the span group the default traversal is at when it reaches position
+        // i * SPAN_GROUP_CHECKPOINT_INTERVAL, for i < mCheckpointCount. Computed for
+        // mCheckpointSpanCount spans.
+        private int[] mCheckpointSpans;
+        private int[] mCheckpointGroups;
+        private int mCheckpointCount;
+        private int mCheckpointSpanCount;
+
+        // output of traverseTo
+        private int mTraversalSpan;
+        private int mTraversalGroup;
+
         /**
          * Returns the number of span occupied by the item at <code>position</code>.
          *
@@ -852,11 +897,114 @@ public class GridLayoutManager extends LinearLayoutManager {
         }
 
         /**
-         * Clears the span index cache. GridLayoutManager automatically calls this method when
-         * adapter changes occur.
+         * Clears the span index cache and the span group index cache. GridLayoutManager
+         * automatically clears the affected part of the caches when adapter changes occur.
          */
         public void invalidateSpanIndexCache() {
             mSpanIndexCache.clear();
+            mCheckpointCount = 0;
+        }
+
+        /**
+         * Clears the cached values that depend on the span size of the given position or of the
+         * ones after it.
+         */
+        void invalidateSpanIndexCacheFrom(int position) {
+            final int reference = findReferenceIndexFromCache(position);
+            final int keep = reference == -1 ? 0 : mSpanIndexCache.indexOfKey(reference) + 1;
+            for (int i = mSpanIndexCache.size() - 1; i >= keep; i--) {
+                mSpanIndexCache.removeAt(i);
+            }
+            // checkpoint i only depends on the positions before it
+            mCheckpointCount = Math.min(mCheckpointCount,
+                    position / SPAN_GROUP_CHECKPOINT_INTERVAL + 1);
+        }
+
+        /**
+         * Sets whether the default implementations of {@link #getSpanGroupIndex(int, int)} and
+         * {@link #getSpanIndex(int, int)} should cache the span group state at regular intervals
+         * of positions. By default they don't and traverse all items from 0 to the given
+         * position. When enabled, they only traverse the items from the closest cached position
+         * before the given one, so each lookup visits a bounded number of items after the first
+         * lookup that far in the adapter.
+         * <p>
+         * Only enable this if {@link #getSpanSize(int)} returns the same value for a position
+         * until an adapter change is dispatched or {@link #invalidateSpanIndexCache()} is
+         * called.
+         *
+         * @param cacheSpanGroupIndices Whether span group indices should be cached or not.
+         */
+        public void setSpanGroupIndexCacheEnabled(boolean cacheSpanGroupIndices) {
+            if (!cacheSpanGroupIndices) {
+                mCheckpointSpans = null;
+                mCheckpointGroups = null;
+                mCheckpointCount = 0;
+            }
+            mCacheSpanGroupIndices = cacheSpanGroupIndices;
+        }
+
+        /**
+         * Returns whether span group indices are cached or not.
+         *
+         * @return True if span group indices are cached.
+         * @see #setSpanGroupIndexCacheEnabled(boolean)
+         */
+        public boolean isSpanGroupIndexCacheEnabled() {
+            return mCacheSpanGroupIndices;
+        }
+
+        /**
+         * Traverses the items before the given position, as if laying them out one after the
+         * other, and stores the span and span group the next item would start from in
+         * mTraversalSpan and mTraversalGroup.
+         */
+        private void traverseTo(int position, int spanCount) {
+            int span = 0;
+            int group = 0;
+            int startPos = 0;
+            if (mCacheSpanGroupIndices) {
+                if (mCheckpointCount == 0 || mCheckpointSpanCount != spanCount) {
+                    mCheckpointSpanCount = spanCount;
+                    mCheckpointCount = 0;
+                    addCheckpoint(0, 0);
+                }
+                final int checkpoint = Math.min(position / SPAN_GROUP_CHECKPOINT_INTERVAL,
+                        mCheckpointCount - 1);
+                span = mCheckpointSpans[checkpoint];
+                group = mCheckpointGroups[checkpoint];
+                startPos = checkpoint * SPAN_GROUP_CHECKPOINT_INTERVAL;
+            }
+            for (int i = startPos; i < position; i++) {
+                int size = getSpanSize(i);
+                span += size;
+                if (span == spanCount) {
+                    span = 0;
+                    group++;
+                } else if (span > spanCount) {
+                    // did not fit, moving to next row / column
+                    span = size;
+                    group++;
+                }
+                if (mCacheSpanGroupIndices
+                        && i + 1 == mCheckpointCount * SPAN_GROUP_CHECKPOINT_INTERVAL) {
+                    addCheckpoint(span, group);
+                }
+            }
+            mTraversalSpan = span;
+            mTraversalGroup = group;
+        }
+
+        private void addCheckpoint(int span, int group) {
+            if (mCheckpointSpans == null) {
+                mCheckpointSpans = new int[16];
+                mCheckpointGroups = new int[16];
+            } else if (mCheckpointCount == mCheckpointSpans.length) {
+                mCheckpointSpans = Arrays.copyOf(mCheckpointSpans, mCheckpointCount * 2);
+                mCheckpointGroups = Arrays.copyOf(mCheckpointGroups, mCheckpointCount * 2);
+            }
+            mCheckpointSpans[mCheckpointCount] = span;
+            mCheckpointGroups[mCheckpointCount] = group;
+            mCheckpointCount++;
         }
 
         /**
@@ -889,7 +1037,9 @@ public class GridLayoutManager extends LinearLayoutManager {
          * ({@link #setSpanIndexCacheEnabled(boolean)}) for better performance. When caching is
          * disabled, default implementation traverses all items from 0 to
          * <code>position</code>. When caching is enabled, it calculates from the closest cached
-         * value before the <code>position</code>.
+         * value before the <code>position</code>. When the span group index cache is enabled
+         * ({@link #setSpanGroupIndexCacheEnabled(boolean)}), it calculates from the closest
+         * cached span group state instead.
          * <p>
          * If you override this method, you need to make sure it is consistent with
          * {@link #getSpanSize(int)}. GridLayoutManager does not call this method for
@@ -909,6 +1059,10 @@ public class GridLayoutManager extends LinearLayoutManager {
             if (positionSpanSize == spanCount) {
                 return 0; // quick return for full-span items
             }
+            if (mCacheSpanGroupIndices) {
+                traverseTo(position, spanCount);
+                return mTraversalSpan + positionSpanSize <= spanCount ? mTraversalSpan : 0;
+            }
             int span = 0;
             int startPos = 0;
             // If caching is enabled, try to jump
@@ -960,28 +1114,20 @@ public class GridLayoutManager extends LinearLayoutManager {
          * <p>
          * For example, if grid has 3 columns and each item occupies 1 span, span group index
          * for item 1 will be 0, item 5 will be 1.
+         * <p>
+         * The default implementation traverses all items from 0 to <code>adapterPosition</code>,
+         * unless the span group index cache is enabled
+         * ({@link #setSpanGroupIndexCacheEnabled(boolean)}).
          *
          * @param adapterPosition The position in adapter
          * @param spanCount The total number of spans in the grid
          * @return The index of the span group including the item at the given adapter position
          */
         public int getSpanGroupIndex(int adapterPosition, int spanCount) {
-            int span = 0;
-            int group = 0;
             int positionSpanSize = getSpanSize(adapterPosition);
-            for (int i = 0; i < adapterPosition; i++) {
-                int size = getSpanSize(i);
-                span += size;
-                if (span == spanCount) {
-                    span = 0;
-                    group++;
-                } else if (span > spanCount) {
-                    // did not fit, moving to next row / column
-                    span = size;
-                    group++;
-                }
-            }
-            if (span + positionSpanSize > spanCount) {
+            traverseTo(adapterPosition, spanCount);
+            int group = mTraversalGroup;
+            if (mTraversalSpan + positionSpanSize > spanCount) {
                 group++;
             }
             return group;
@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.support.v7.widget;
+
+import android.util.SparseArray;
+
+import java.util.Arrays;
+
+/**
+ * Counts which tier of the {@link RecyclerView.Recycler} served each ViewHolder a LayoutManager
+ * or prefetch asked for, per view type, both in total and for the last completed frame.
+ * <p>
+ * Attach an instance with {@link RecyclerView#setHolderLookupStats(HolderLookupStats)}. One
+ * instance can be shared by several RecyclerViews. When no instance is attached, the Recycler
+ * does no bookkeeping at all.
+ * <pre>
+ *     int hits = stats.getTotalCount(type, HolderLookupStats.TIER_CACHE);
+ *     int creates = stats.getTotalCount(type, HolderLookupStats.TIER_CREATE);
+ * </pre>
+ * Frames are told apart by {@link android.view.View#getDrawingTime()}, so lookups done by
+ * prefetch between two frames count towards the frame they follow.
+ */
+public class HolderLookupStats {
+
+    /**
+     * Holder found in the changed scrap, during pre-layout.
+     */
+    public static final int TIER_CHANGED_SCRAP = 0;
+
+    /**
+     * Holder found by position in the attached scrap.
+     */
+    public static final int TIER_ATTACHED_SCRAP = 1;
+
+    /**
+     * Holder found by position among the hidden (animating out) children.
+     */
+    public static final int TIER_HIDDEN = 2;
+
+    /**
+     * Holder found by position in the Recycler's view cache.
+     */
+    public static final int TIER_CACHE = 3;
+
+    /**
+     * Holder found by stable id in the scrap or the view cache.
+     */
+    public static final int TIER_STABLE_ID = 4;
+
+    /**
+     * Holder returned by the {@link RecyclerView.ViewCacheExtension}.
+     */
+    public static final int TIER_VIEW_CACHE_EXTENSION = 5;
+
+    /**
+     * Holder taken from the {@link RecyclerView.RecycledViewPool}.
+     */
+    public static final int TIER_POOL = 6;
+
+    /**
+     * Holder created by the Adapter.
+     */
+    public static final int TIER_CREATE = 7;
+
+    static final int TIER_COUNT = 8;
+
+    private final SparseArray<int[]> mTotalCounts = new SparseArray<>();
+    private SparseArray<int[]> mFrameCounts = new SparseArray<>();
+    private SparseArray<int[]> mLastFrameCounts = new SparseArray<>();
+    private long mFrameTimeMs = -1;
+    private long mLastFrameTimeMs = -1;
+
+    void record(long frameTimeMs, int viewType, int tier) {
+        if (frameTimeMs != mFrameTimeMs) {
+            if (mFrameTimeMs != -1) {
+                final SparseArray<int[]> finished = mFrameCounts;
+                mFrameCounts = mLastFrameCounts;
+                mLastFrameCounts = finished;
+                mLastFrameTimeMs = mFrameTimeMs;
+            }
+            clearCounts(mFrameCounts);
+            mFrameTimeMs = frameTimeMs;
+        }
+        countsForType(mTotalCounts, viewType)[tier]++;
+        countsForType(mFrameCounts, viewType)[tier]++;
+    }
+
+    private static int[] countsForType(SparseArray<int[]> counts, int viewType) {
+        int[] typeCounts = counts.get(viewType);
+        if (typeCounts == null) {
+            typeCounts = new int[TIER_COUNT];
+            counts.put(viewType, typeCounts);
+        }
+        return typeCounts;
+    }
+
+    private static void clearCounts(SparseArray<int[]> counts) {
+        for (int i = 0; i < counts.size(); i++) {
+            Arrays.fill(counts.valueAt(i), 0);
+        }
+    }
+
+    private static int getCount(SparseArray<int[]> counts, int viewType, int tier) {
+        final int[] typeCounts = counts.get(viewType);
+        return typeCounts == null ? 0 : typeCounts[tier];
+    }
+
+    /**
+     * Returns how many holders of the given type were served by the given tier since this
+     * instance was created or last reset.
+     *
+     * @param viewType The view type.
+     * @param tier     One of the <code>TIER_</code> constants.
+     */
+    public int getTotalCount(int viewType, int tier) {
+        return getCount(mTotalCounts, viewType, tier);
+    }
+
+    /**
+     * Returns how many holders of the given type were served by the given tier in the last
+     * completed frame.
+     *
+     * @param viewType The view type.
+     * @param tier     One of the <code>TIER_</code> constants.
+     * @see #getLastFrameTimeMs()
+     */
+    public int getLastFrameCount(int viewType, int tier) {
+        return getCount(mLastFrameCounts, viewType, tier);
+    }
+
+    /**
+     * Returns the drawing time of the last completed frame with holder lookups, or -1 if there
+     * is none yet.
+     */
+    public long getLastFrameTimeMs() {
+        return mLastFrameTimeMs;
+    }
+
+    /**
+     * Clears all counts.
+     */
+    public void reset() {
+        mTotalCounts.clear();
+        mFrameCounts.clear();
+        mLastFrameCounts.clear();
+        mFrameTimeMs = -1;
+        mLastFrameTimeMs = -1;
+    }
+}
@@ -0,0 +1,269 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.support.v7.widget;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the size of each adapter item along the layout direction, so that offsets of items in
+ * the whole list can be found in O(log n).
+ * <p>
+ * Items that were never laid out have an unknown size and count as the average of the known
+ * sizes. To keep that cheap, the binary indexed tree holds two sums per node: the known sizes and
+ * the number of known items. The estimate is then applied on the fly, so it can change without
+ * touching the tree.
+ * <p>
+ * Point updates are O(log n). Inserting, removing and moving items shifts the sizes after the
+ * first affected position with a single array copy, and only marks the tree nodes from that
+ * position on as stale. They are rebuilt once, on the next query, in O(n - p + log n) for the
+ * lowest affected position p, however many changes came in between. Changes near the end of a
+ * long list are cheap, and a batch of notifications costs one rebuild.
+ */
+class ItemSizeIndex {
+
+    static final int UNKNOWN = -1;
+
+    private int mCount;
+
+    // size of each item, or UNKNOWN
+    private int[] mSizes = new int[0];
+
+    // 1-based binary indexed trees over the known sizes and the known item count
+    private long[] mKnownSums = new long[1];
+    private int[] mKnownCounts = new int[1];
+
+    // tree nodes above this 1-based index are stale, Integer.MAX_VALUE when the tree is valid
+    private int mDirtyFrom = 0;
+
+    private long mKnownTotal;
+    private int mKnownItems;
+
+    int getItemCount() {
+        return mCount;
+    }
+
+    /**
+     * Forgets all sizes and sets the item count.
+     */
+    void reset(int itemCount) {
+        ensureCapacity(itemCount);
+        Arrays.fill(mSizes, 0, itemCount, UNKNOWN);
+        mCount = itemCount;
+        invalidateTree(0);
+    }
+
+    /**
+     * Sets the item count, keeping the sizes of the items that remain. New items are unknown.
+     */
+    void setItemCount(int itemCount) {
+        if (itemCount == mCount) {
+            return;
+        }
+        ensureCapacity(itemCount);
+        if (itemCount > mCount) {
+            Arrays.fill(mSizes, mCount, itemCount, UNKNOWN);
+        }
+        invalidateTree(Math.min(mCount, itemCount));
+        mCount = itemCount;
+    }
+
+    void setSize(int position, int size) {
+        if (position < 0 || position >= mCount) {
+            return;
+        }
+        final int old = mSizes[position];
+        if (old == size) {
+            return;
+        }
+        mSizes[position] = size;
+        if (position >= mDirtyFrom) {
+            // covered by the next rebuild
+            return;
+        }
+        final long sumDelta = (size == UNKNOWN ? 0 : size) - (old == UNKNOWN ? 0 : old);
+        final int countDelta = (size == UNKNOWN ? 0 : 1) - (old == UNKNOWN ? 0 : 1);
+        mKnownTotal += sumDelta;
+        mKnownItems += countDelta;
+        for (int i = position + 1; i <= mCount; i += i & -i) {
+            mKnownSums[i] += sumDelta;
+            mKnownCounts[i] += countDelta;
+        }
+    }
+
+    void markUnknown(int positionStart, int itemCount) {
+        final int end = Math.min(mCount, positionStart + itemCount);
+        for (int i = Math.max(0, positionStart); i < end; i++) {
+            setSize(i, UNKNOWN);
+        }
+    }
+
+    void insert(int positionStart, int itemCount) {
+        if (positionStart < 0 || positionStart > mCount || itemCount <= 0) {
+            return;
+        }
+        ensureCapacity(mCount + itemCount);
+        System.arraycopy(mSizes, positionStart, mSizes, positionStart + itemCount,
+                mCount - positionStart);
+        Arrays.fill(mSizes, positionStart, positionStart + itemCount, UNKNOWN);
+        mCount += itemCount;
+        invalidateTree(positionStart);
+    }
+
+    void remove(int positionStart, int itemCount) {
+        if (positionStart < 0 || positionStart >= mCount || itemCount <= 0) {
+            return;
+        }
+        itemCount = Math.min(itemCount, mCount - positionStart);
+        System.arraycopy(mSizes, positionStart + itemCount, mSizes, positionStart,
+                mCount - positionStart - itemCount);
+        mCount -= itemCount;
+        invalidateTree(positionStart);
+    }
+
+    void move(int from, int to) {
+        if (from < 0 || from >= mCount || to < 0 || to >= mCount || from == to) {
+            return;
+        }
+        final int size = mSizes[from];
+        if (from < to) {
+            System.arraycopy(mSizes, from + 1, mSizes, from, to - from);
+        } else {
+            System.arraycopy(mSizes, to, mSizes, to + 1, from - to);
+        }
+        mSizes[to] = size;
+        invalidateTree(Math.min(from, to));
+    }
+
+    boolean hasKnownSizes() {
+        ensureTree();
+        return mKnownItems > 0;
+    }
+
+    /**
+     * Returns the size used for items that were never laid out, the average of the known sizes.
+     */
+    int getEstimatedSize() {
+        ensureTree();
+        return mKnownItems == 0 ? 0 : (int) ((mKnownTotal + mKnownItems / 2) / mKnownItems);
+    }
+
+    /**
+     * Returns the sum of the sizes of the items before the given position.
+     */
+    long getOffset(int position) {
+        ensureTree();
+        position = Math.max(0, Math.min(position, mCount));
+        return sumKnown(position) + (long) (position - countKnown(position)) * getEstimatedSize();
+    }
+
+    long getTotalSize() {
+        ensureTree();
+        return mKnownTotal + (long) (mCount - mKnownItems) * getEstimatedSize();
+    }
+
+    /**
+     * Returns the position of the item that covers the given offset, clamped to the list.
+     */
+    int findPosition(long offset) {
+        ensureTree();
+        if (mCount == 0) {
+            return RecyclerView.NO_POSITION;
+        }
+        final long estimate = getEstimatedSize();
+        int index = 0;
+        long sum = 0;
+        for (int step = Integer.highestOneBit(mCount); step > 0; step >>= 1) {
+            final int next = index + step;
+            if (next > mCount) {
+                continue;
+            }
+            final long nodeSum = mKnownSums[next] + (step - mKnownCounts[next]) * estimate;
+            if (sum + nodeSum <= offset) {
+                index = next;
+                sum += nodeSum;
+            }
+        }
+        return Math.min(index, mCount - 1);
+    }
+
+    private void ensureCapacity(int itemCount) {
+        if (itemCount <= mSizes.length) {
+            return;
+        }
+        final int capacity = Math.max(itemCount, mSizes.length + (mSizes.length >> 1));
+        mSizes = Arrays.copyOf(mSizes, capacity);
+        mKnownSums = new long[capacity + 1];
+        mKnownCounts = new int[capacity + 1];
+        invalidateTree(0);
+    }
+
+    private long sumKnown(int position) {
+        long knownSum = 0;
+        for (int i = position; i > 0; i -= i & -i) {
+            knownSum += mKnownSums[i];
+        }
+        return knownSum;
+    }
+
+    private int countKnown(int position) {
+        int knownCount = 0;
+        for (int i = position; i > 0; i -= i & -i) {
+            knownCount += mKnownCounts[i];
+        }
+        return knownCount;
+    }
+
+    /**
+     * Marks the tree nodes covering positions from the given one on as stale.
+     */
+    private void invalidateTree(int position) {
+        mDirtyFrom = Math.min(mDirtyFrom, position);
+    }
+
+    private void ensureTree() {
+        if (mDirtyFrom == Integer.MAX_VALUE) {
+            return;
+        }
+        final int dirtyFrom = Math.min(mDirtyFrom, mCount);
+        // nodes up to dirtyFrom are valid, the others only hold their own item for now
+        for (int i = dirtyFrom + 1; i <= mCount; i++) {
+            final int size = mSizes[i - 1];
+            mKnownSums[i] = size == UNKNOWN ? 0 : size;
+            mKnownCounts[i] = size == UNKNOWN ? 0 : 1;
+        }
+        // the valid nodes whose parents are stale are the ones summed for the prefix up to
+        // dirtyFrom, add them to their parents
+        for (int i = dirtyFrom; i > 0; i -= i & -i) {
+            final int parent = i + (i & -i);
+            if (parent <= mCount) {
+                mKnownSums[parent] += mKnownSums[i];
+                mKnownCounts[parent] += mKnownCounts[i];
+            }
+        }
+        // then build the stale nodes bottom up, each one is complete when it is reached
+        for (int i = dirtyFrom + 1; i <= mCount; i++) {
+            final int parent = i + (i & -i);
+            if (parent <= mCount) {
+                mKnownSums[parent] += mKnownSums[i];
+                mKnownCounts[parent] += mKnownCounts[i];
+            }
+        }
+        mKnownTotal = sumKnown(mCount);
+        mKnownItems = countKnown(mCount);
+        mDirtyFrom = Integer.MAX_VALUE;
+    }
+}
@@ -148,6 +148,30 @@ public class LinearLayoutManager extends RecyclerView.LayoutManager implements
      */
     private int mInitialItemPrefetchCount = 2;
 
+    /**
+     * How far ahead of a fling items are laid out, in milliseconds of the fling's current speed.
+     */
+    private static final int FLING_LAYOUT_AHEAD_MS = 100;
+
+    /**
+     * Upper bound of the extra space laid out during flings, in multiples of the total space.
+     * 0 disables it.
+     */
+    private float mMaxFlingExtraLayoutSpace = 0;
+
+    /**
+     * Sizes of all items along the layout direction, null unless enabled.
+     *
+     * @see #setItemSizeIndexEnabled(boolean)
+     */
+    ItemSizeIndex mItemSizeIndex;
+
+    /**
+     * Size of the RecyclerView in the other orientation when the sizes in the index were
+     * recorded.
+     */
+    private int mItemSizeIndexOtherSize = -1;
+
     /**
      * Creates a vertical LinearLayoutManager
      *
@@ -341,6 +365,10 @@ public class LinearLayoutManager extends RecyclerView.LayoutManager implements
         }
         mOrientation = orientation;
         mOrientationHelper = null;
+        if (mItemSizeIndex != null) {
+            mItemSizeIndex.reset(0);
+            mItemSizeIndexOtherSize = -1;
+        }
         requestLayout();
     }
 
@@ -436,8 +464,56 @@ public class LinearLayoutManager extends RecyclerView.LayoutManager implements
         if (state.hasTargetScrollPosition()) {
             return mOrientationHelper.getTotalSpace();
         } else {
+            return getFlingExtraLayoutSpace();
+        }
+    }
+
+    /**
+     * Returns the extra space to lay out ahead of the current fling, which covers the distance
+     * the fling travels in {@link #FLING_LAYOUT_AHEAD_MS} at its current speed, capped by
+     * {@link #getMaxFlingExtraLayoutSpace()}. It is 0 when no fling is running.
+     */
+    private int getFlingExtraLayoutSpace() {
+        if (mMaxFlingExtraLayoutSpace <= 0 || mRecyclerView == null) {
             return 0;
         }
+        final float velocity = mRecyclerView.getCurrentFlingVelocity();
+        if (velocity <= 0) {
+            return 0;
+        }
+        final int maxSpace = (int) (mOrientationHelper.getTotalSpace() * mMaxFlingExtraLayoutSpace);
+        return Math.min(maxSpace, (int) (velocity * FLING_LAYOUT_AHEAD_MS / 1000));
+    }
+
+    /**
+     * Sets the maximum extra space LinearLayoutManager lays out ahead of a fling, in multiples of
+     * the RecyclerView's size in the layout direction (minus padding).
+     * <p>
+     * While the RecyclerView flings, items are laid out and bound before they scroll in, over a
+     * distance that grows with the fling's speed, up to this limit. The extra space drops back
+     * to 0 as the fling slows down and stops. A larger limit keeps more views attached during
+     * fast flings, so it costs memory and bind work that may never be seen if the fling is
+     * stopped.
+     * <p>
+     * This only applies when {@link #getExtraLayoutSpace(RecyclerView.State)} is not
+     * overridden. It is 0 by default, which disables the extra space.
+     *
+     * @param maxScreens The maximum extra space, in multiples of the total space.
+     */
+    public void setMaxFlingExtraLayoutSpace(float maxScreens) {
+        if (maxScreens < 0) {
+            throw new IllegalArgumentException("max extra layout space must be >= 0");
+        }
+        mMaxFlingExtraLayoutSpace = maxScreens;
+    }
+
+    /**
+     * Returns the maximum extra space laid out ahead of a fling, in multiples of the total space.
+     *
+     * @see #setMaxFlingExtraLayoutSpace(float)
+     */
+    public float getMaxFlingExtraLayoutSpace() {
+        return mMaxFlingExtraLayoutSpace;
     }
 
     @Override
@@ -492,6 +568,9 @@ public class LinearLayoutManager extends RecyclerView.LayoutManager implements
         mLayoutState.mRecycle = false;
         // resolve layout direction
         resolveShouldLayoutReverse();
+        if (mItemSizeIndex != null && !state.isPreLayout()) {
+            syncItemSizeIndex(state);
+        }
 
         if (!mAnchorInfo.mValid || mPendingScrollPosition != NO_POSITION ||
                 mPendingSavedState != null) {
@@ -1094,6 +1173,14 @@ public class LinearLayoutManager extends RecyclerView.LayoutManager implements
             return 0;
         }
         ensureLayoutState();
+        // without smooth scrollbar the extent is in items, offset and range must be too
+        if (mSmoothScrollbarEnabled && canUseItemSizeIndex(state.getItemCount())) {
+            final View child = getChildClosestToStart();
+            final long offset = getItemSizeIndexStart(getPosition(child))
+                    + mOrientationHelper.getStartAfterPadding()
+                    - mOrientationHelper.getDecoratedStart(child);
+            return (int) Math.max(0, Math.min(offset, Integer.MAX_VALUE));
+        }
         return ScrollbarHelper.computeScrollOffset(state, mOrientationHelper,
                 findFirstVisibleChildClosestToStart(!mSmoothScrollbarEnabled, true),
                 findFirstVisibleChildClosestToEnd(!mSmoothScrollbarEnabled, true),
@@ -1116,6 +1203,10 @@ public class LinearLayoutManager extends RecyclerView.LayoutManager implements
             return 0;
         }
         ensureLayoutState();
+        // without smooth scrollbar the extent is in items, offset and range must be too
+        if (mSmoothScrollbarEnabled && canUseItemSizeIndex(state.getItemCount())) {
+            return (int) Math.min(mItemSizeIndex.getTotalSize(), Integer.MAX_VALUE);
+        }
         return ScrollbarHelper.computeScrollRange(state, mOrientationHelper,
                 findFirstVisibleChildClosestToStart(!mSmoothScrollbarEnabled, true),
                 findFirstVisibleChildClosestToEnd(!mSmoothScrollbarEnabled, true),
@@ -1152,6 +1243,180 @@ public class LinearLayoutManager extends RecyclerView.LayoutManager implements
         return mSmoothScrollbarEnabled;
     }
 
+    /**
+     * When enabled, LinearLayoutManager remembers the size of every item it lays out and keeps
+     * these sizes in an index that is updated along with the adapter changes. Items that were
+     * never laid out are assumed to have the average size of the ones that were.
+     * <p>
+     * The index lets the smooth scrollbar be computed from the actual sizes of the items instead
+     * of the visible ones only, which keeps it stable in lists with items of varying sizes, and
+     * supports {@link #scrollToOffset(int)}, {@link #findPositionForOffset(int)} and
+     * {@link RecyclerView#scrollTo(int, int)}. All of these take O(log n) time.
+     * <p>
+     * The index is cleared when the size of the RecyclerView in the other orientation changes,
+     * since items may then change size. It is disabled by default.
+     *
+     * @param enabled Whether or not to keep an index of the item sizes.
+     */
+    public void setItemSizeIndexEnabled(boolean enabled) {
+        assertNotInLayoutOrScroll(null);
+        if (enabled == (mItemSizeIndex != null)) {
+            return;
+        }
+        mItemSizeIndex = enabled ? new ItemSizeIndex() : null;
+        mItemSizeIndexOtherSize = -1;
+        requestLayout();
+    }
+
+    /**
+     * Returns whether LinearLayoutManager keeps an index of the item sizes.
+     *
+     * @return True if the index is enabled, false otherwise.
+     * @see #setItemSizeIndexEnabled(boolean)
+     */
+    public boolean isItemSizeIndexEnabled() {
+        return mItemSizeIndex != null;
+    }
+
+    /**
+     * Returns the adapter position of the item at the given distance from the start of the list,
+     * based on the item size index.
+     *
+     * @param offset The distance (in pixels) from the start of the first item of the list, in
+     *               the layout direction.
+     * @return The adapter position of the item covering the offset, or
+     * {@link RecyclerView#NO_POSITION} if the index is disabled or doesn't know any size yet.
+     * @see #setItemSizeIndexEnabled(boolean)
+     */
+    public int findPositionForOffset(int offset) {
+        if (!canUseItemSizeIndex(getItemCount())) {
+            return NO_POSITION;
+        }
+        final ItemSizeIndex index = mItemSizeIndex;
+        final long clamped = Math.max(0, Math.min(offset, index.getTotalSize() - 1));
+        if (mShouldReverseLayout) {
+            // positions run from the end of the list
+            return index.findPosition(index.getTotalSize() - 1 - clamped);
+        }
+        return index.findPosition(clamped);
+    }
+
+    /**
+     * Scrolls the list so that the given distance from its start is at the start of the
+     * RecyclerView (after padding), based on the item size index. The offset is clamped so that
+     * the list doesn't scroll past its end.
+     * <p>
+     * Like {@link #scrollToPositionWithOffset(int, int)}, the scroll happens in the next layout
+     * pass. Offsets of items that were never laid out are estimated, so the resulting position is
+     * exact only when the items before it were laid out at least once.
+     *
+     * @param offset The distance (in pixels) from the start of the first item of the list.
+     * @return True if the scroll was requested, false if the index is disabled or doesn't know
+     * any size yet.
+     * @see #setItemSizeIndexEnabled(boolean)
+     */
+    public boolean scrollToOffset(int offset) {
+        if (!canUseItemSizeIndex(getItemCount())) {
+            return false;
+        }
+        ensureLayoutState();
+        final ItemSizeIndex index = mItemSizeIndex;
+        final long total = index.getTotalSize();
+        final long target = Math.max(0,
+                Math.min(offset, total - mOrientationHelper.getTotalSpace()));
+        final int position;
+        final long itemOffset;
+        if (mShouldReverseLayout) {
+            // the offset of a reverse layout is between the end edges of the item and the list
+            position = index.findPosition(Math.max(0, total - target - 1));
+            itemOffset = mOrientationHelper.getTotalSpace() - (total - index.getOffset(position))
+                    + target;
+        } else {
+            position = index.findPosition(target);
+            itemOffset = index.getOffset(position) - target;
+        }
+        scrollToPositionWithOffset(position, (int) itemOffset);
+        return true;
+    }
+
+    @Override
+    boolean scrollToAbsoluteOffset(int x, int y) {
+        return scrollToOffset(mOrientation == VERTICAL ? y : x);
+    }
+
+    private boolean canUseItemSizeIndex(int itemCount) {
+        return mItemSizeIndex != null && mItemSizeIndex.getItemCount() == itemCount
+                && mItemSizeIndex.hasKnownSizes();
+    }
+
+    /**
+     * Returns the distance from the start of the list to the start edge of the item, as seen by
+     * the user.
+     */
+    private long getItemSizeIndexStart(int position) {
+        if (mShouldReverseLayout) {
+            return mItemSizeIndex.getTotalSize() - mItemSizeIndex.getOffset(position + 1);
+        }
+        return mItemSizeIndex.getOffset(position);
+    }
+
+    private void syncItemSizeIndex(RecyclerView.State state) {
+        final int otherSize = mOrientation == VERTICAL ? getWidth() : getHeight();
+        if (otherSize != mItemSizeIndexOtherSize) {
+            // items may wrap differently, recorded sizes are stale
+            mItemSizeIndex.reset(state.getItemCount());
+            mItemSizeIndexOtherSize = otherSize;
+        } else {
+            mItemSizeIndex.setItemCount(state.getItemCount());
+        }
+    }
+
+    @Override
+    public void onAdapterChanged(RecyclerView.Adapter oldAdapter,
+            RecyclerView.Adapter newAdapter) {
+        if (mItemSizeIndex != null) {
+            mItemSizeIndex.reset(0);
+        }
+    }
+
+    @Override
+    public void onItemsChanged(RecyclerView recyclerView) {
+        if (mItemSizeIndex != null) {
+            mItemSizeIndex.reset(getItemCount());
+        }
+    }
+
+    @Override
+    public void onItemsAdded(RecyclerView recyclerView, int positionStart, int itemCount) {
+        if (mItemSizeIndex != null) {
+            mItemSizeIndex.insert(positionStart, itemCount);
+        }
+    }
+
+    @Override
+    public void onItemsRemoved(RecyclerView recyclerView, int positionStart, int itemCount) {
+        if (mItemSizeIndex != null) {
+            mItemSizeIndex.remove(positionStart, itemCount);
+        }
+    }
+
+    @Override
+    public void onItemsUpdated(RecyclerView recyclerView, int positionStart, int itemCount) {
+        if (mItemSizeIndex != null) {
+            // re-recorded when laid out again
+            mItemSizeIndex.markUnknown(positionStart, itemCount);
+        }
+    }
+
+    @Override
+    public void onItemsMoved(RecyclerView recyclerView, int from, int to, int itemCount) {
+        if (mItemSizeIndex != null) {
+            for (int i = 0; i < itemCount; i++) {
+                mItemSizeIndex.move(from + i, to + i);
+            }
+        }
+    }
+
     private void updateLayoutState(int layoutDirection, int requiredSpace,
                                    boolean canUseExistingSpace, RecyclerView.State state) {
         // If parent provides a hint, don't measure unlimited.
@@ -1564,6 +1829,9 @@ public class LinearLayoutManager extends RecyclerView.LayoutManager implements
         }
         measureChildWithMargins(view, 0, 0);
         result.mConsumed = mOrientationHelper.getDecoratedMeasurement(view);
+        if (mItemSizeIndex != null && !layoutState.mIsPreLayout) {
+            mItemSizeIndex.setSize(getPosition(view), result.mConsumed);
+        }
         int left, top, right, bottom;
         if (mOrientation == VERTICAL) {
             if (isLayoutRTL()) {
@@ -80,6 +80,17 @@ public class LinearSmoothScroller extends RecyclerView.SmoothScroller {
     // scrolling slows down and reschedule another interim target scroll
     private static final float TARGET_SEEK_EXTRA_SCROLL_RATIO = 1.2f;
 
+    /**
+     * Default distance to the target, in screens, above which the scroller jumps close to the
+     * target instead of scrolling through every item in between.
+     *
+     * @see #getJumpThresholdScreens()
+     */
+    public static final float DEFAULT_JUMP_THRESHOLD_SCREENS = 10f;
+
+    // How many screens before the target a jump lands, the rest is scrolled smoothly.
+    private static final float JUMP_REMAINDER_SCREENS = 3f;
+
     protected final LinearInterpolator mLinearInterpolator = new LinearInterpolator();
 
     protected final DecelerateInterpolator mDecelerateInterpolator = new DecelerateInterpolator();
@@ -92,6 +103,9 @@ public class LinearSmoothScroller extends RecyclerView.SmoothScroller {
     // point to a real item position, rather point to an estimated location pixels.
     protected int mInterimTargetDx = 0, mInterimTargetDy = 0;
 
+    // Whether this scroll already jumped towards its target, it only jumps once.
+    private boolean mJumped;
+
     public LinearSmoothScroller(Context context) {
         MILLISECONDS_PER_PX = calculateSpeedPerPixel(context.getResources().getDisplayMetrics());
     }
@@ -149,6 +163,7 @@ public class LinearSmoothScroller extends RecyclerView.SmoothScroller {
     protected void onStop() {
         mInterimTargetDx = mInterimTargetDy = 0;
         mTargetVector = null;
+        mJumped = false;
     }
 
     /**
@@ -193,6 +208,23 @@ public class LinearSmoothScroller extends RecyclerView.SmoothScroller {
         return (int) Math.ceil(Math.abs(dx) * MILLISECONDS_PER_PX);
     }
 
+    /**
+     * Returns how far the target position may be, in screens, before the scroller jumps close to
+     * it instead of scrolling through every item in between. When the target is farther, the
+     * scroller instantly scrolls to a position a few screens before the target and smoothly
+     * scrolls the rest of the way, which looks the same to the user but lays out and binds only
+     * a fraction of the items.
+     * <p>
+     * The distance is estimated from the number of items currently laid out, since the size of
+     * the items that are not laid out is unknown.
+     *
+     * @return The distance in screens, or 0 to always scroll all the way. Defaults to
+     * {@link #DEFAULT_JUMP_THRESHOLD_SCREENS}.
+     */
+    protected float getJumpThresholdScreens() {
+        return DEFAULT_JUMP_THRESHOLD_SCREENS;
+    }
+
     /**
      * When scrolling towards a child view, this method defines whether we should align the left
      * or the right edge of the child with the parent RecyclerView.
@@ -236,6 +268,15 @@ public class LinearSmoothScroller extends RecyclerView.SmoothScroller {
             stop();
             return;
         }
+        if (!mJumped) {
+            mJumped = true;
+            final int jumpPosition = findJumpPosition(getTargetPosition());
+            if (jumpPosition != RecyclerView.NO_POSITION) {
+                // the next animation step runs once the jump is laid out and seeks from there
+                action.jumpTo(jumpPosition);
+                return;
+            }
+        }
         normalize(scrollVector);
         mTargetVector = scrollVector;
 
@@ -250,6 +291,40 @@ public class LinearSmoothScroller extends RecyclerView.SmoothScroller {
                 , (int) (time * TARGET_SEEK_EXTRA_SCROLL_RATIO), mLinearInterpolator);
     }
 
+    /**
+     * Returns the position to jump to before scrolling towards the target, or
+     * {@link RecyclerView#NO_POSITION} if the target is close enough to scroll all the way.
+     */
+    private int findJumpPosition(int targetPosition) {
+        final RecyclerView.LayoutManager layoutManager = getLayoutManager();
+        final float thresholdScreens = getJumpThresholdScreens();
+        final int childCount = getChildCount();
+        if (layoutManager == null || thresholdScreens <= 0 || childCount == 0) {
+            return RecyclerView.NO_POSITION;
+        }
+        int first = Integer.MAX_VALUE;
+        int last = Integer.MIN_VALUE;
+        for (int i = 0; i < childCount; i++) {
+            final int position = getChildPosition(layoutManager.getChildAt(i));
+            if (position != RecyclerView.NO_POSITION) {
+                first = Math.min(first, position);
+                last = Math.max(last, position);
+            }
+        }
+        if (first > last) {
+            return RecyclerView.NO_POSITION;
+        }
+        final int distance = targetPosition > last ? targetPosition - last
+                : targetPosition < first ? first - targetPosition : 0;
+        if (distance <= thresholdScreens * childCount) {
+            return RecyclerView.NO_POSITION;
+        }
+        final int remainder = (int) Math.ceil(JUMP_REMAINDER_SCREENS * childCount);
+        final int jumpPosition = targetPosition > last ? targetPosition - remainder
+                : targetPosition + remainder;
+        return Math.max(0, Math.min(jumpPosition, layoutManager.getItemCount() - 1));
+    }
+
     private int clampApplyScroll(int tmpDt, int dt) {
         final int before = tmpDt;
         tmpDt -= dt;
@@ -35,12 +35,49 @@ class OpReorderer {
     void reorderOps(List<UpdateOp> ops) {
         // since move operations breaks continuity, their effects on ADD/RM are hard to handle.
         // we push them to the end of the list so that they can be handled easily.
-        int badMove;
-        while ((badMove = getLastMoveOutOfOrder(ops)) != -1) {
-            swapMoveOp(ops, badMove, badMove + 1);
+        // Moves are bubbled from the last one to the first one, each until it reaches the moves
+        // already pushed to the end. Swaps only touch the list from the move's position onwards,
+        // so ops before it never need to be scanned again.
+        for (int i = ops.size() - 1; i >= 0; i--) {
+            if (ops.get(i).cmd == MOVE) {
+                pushMoveToEnd(ops, i);
+            }
+        }
+    }
+
+    /**
+     * Swaps the move at the given index with the ops after it until it is followed by another
+     * move or reaches the end of the list, or until a swap turns it into something else.
+     */
+    private void pushMoveToEnd(List<UpdateOp> ops, int index) {
+        final UpdateOp moveOp = ops.get(index);
+        while (index + 1 < ops.size() && ops.get(index + 1).cmd != MOVE) {
+            swapMoveOp(ops, index, index + 1);
+            index = findMoveAfterSwap(ops, moveOp, index);
+            if (index == -1) {
+                return;
+            }
         }
     }
 
+    /**
+     * A swap may split the other op in two before the move or drop it, so the move ends up
+     * between its old index and two slots after its new one. Returns -1 if the swap removed
+     * the move or turned it into a remove.
+     */
+    private static int findMoveAfterSwap(List<UpdateOp> ops, UpdateOp moveOp, int oldIndex) {
+        if (moveOp.cmd != MOVE) {
+            return -1;
+        }
+        final int end = Math.min(ops.size(), oldIndex + 4);
+        for (int i = oldIndex; i < end; i++) {
+            if (ops.get(i) == moveOp) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
     private void swapMoveOp(List<UpdateOp> list, int badMove, int next) {
         final UpdateOp moveOp = list.get(badMove);
         final UpdateOp nextOp = list.get(next);
@@ -214,21 +251,6 @@ class OpReorderer {
         }
     }
 
-    private int getLastMoveOutOfOrder(List<UpdateOp> list) {
-        boolean foundNonMove = false;
-        for (int i = list.size() - 1; i >= 0; i--) {
-            final UpdateOp op1 = list.get(i);
-            if (op1.cmd == MOVE) {
-                if (foundNonMove) {
-                    return i;
-                }
-            } else {
-                foundNonMove = true;
-            }
-        }
-        return -1;
-    }
-
     static interface Callback {
 
         UpdateOp obtainUpdateOp(int cmd, int startPosition, int itemCount, Object payload);
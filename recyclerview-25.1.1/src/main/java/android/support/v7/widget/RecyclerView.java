@@ -19,6 +19,7 @@ package android.support.v7.widget;
 
 import static android.support.annotation.RestrictTo.Scope.LIBRARY_GROUP;
 
+import android.content.ComponentCallbacks2;
 import android.content.Context;
 import android.content.res.TypedArray;
 import android.database.Observable;
@@ -29,6 +30,9 @@ import android.graphics.Rect;
 import android.graphics.RectF;
 import android.os.Build;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.MessageQueue;
 import android.os.Parcel;
 import android.os.Parcelable;
 import android.os.SystemClock;
@@ -41,6 +45,7 @@ import android.support.annotation.VisibleForTesting;
 import android.support.v4.os.ParcelableCompat;
 import android.support.v4.os.ParcelableCompatCreatorCallbacks;
 import android.support.v4.os.TraceCompat;
+import android.support.v4.util.LongSparseArray;
 import android.support.v4.view.AbsSavedState;
 import android.support.v4.view.InputDeviceCompat;
 import android.support.v4.view.MotionEventCompat;
@@ -77,8 +82,10 @@ import java.lang.ref.WeakReference;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 /**
  * A flexible view for providing a limited window into a large data set.
@@ -309,6 +316,21 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
      */
     final ViewInfoStore mViewInfoStore = new ViewInfoStore();
 
+    /**
+     * Counts which Recycler tier served each ViewHolder, null unless set by the app
+     */
+    HolderLookupStats mHolderLookupStats;
+
+    /**
+     * Measures the work done in each frame, null unless set by the app
+     */
+    FrameWorkStats mFrameWorkStats;
+
+    /**
+     * Prepares bind models in the background, created once the adapter supports it
+     */
+    BindPreparer mBindPreparer;
+
     /**
      * Prior to L, there is no way to query this variable which is why we override the setter and
      * track it here.
@@ -404,10 +426,22 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
      */
     private int mDispatchScrollCounter = 0;
 
+    /**
+     * Incremented whenever children may have moved, by a layout pass or by offsetting them.
+     *
+     * @see #getChildBoundsGeneration()
+     */
+    private int mChildBoundsGeneration = 0;
+
     private EdgeEffectCompat mLeftGlow, mTopGlow, mRightGlow, mBottomGlow;
 
     ItemAnimator mItemAnimator = new DefaultItemAnimator();
 
+    /**
+     * Update batches touching more items than this are laid out without item animations.
+     */
+    private int mMaxAnimatedBatchSize = Integer.MAX_VALUE;
+
     private static final int INVALID_POINTER = -1;
 
     /**
@@ -1037,6 +1071,7 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
             removeAndRecycleViews();
         }
         mAdapterHelper.reset();
+        invalidateBindPreparation();
         final Adapter oldAdapter = mAdapter;
         mAdapter = adapter;
         if (adapter != null) {
@@ -1341,6 +1376,71 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
         mRecycler.setViewCacheExtension(extension);
     }
 
+    /**
+     * Sets a {@link HolderLookupStats} that counts, per view type and frame, whether ViewHolders
+     * came from the scrap, the view cache, the {@link RecycledViewPool} or had to be created.
+     * <p>
+     * Pass null to stop counting. No bookkeeping happens while no stats are set.
+     *
+     * @param stats The stats to record into, may be shared between RecyclerViews.
+     */
+    public void setHolderLookupStats(@Nullable HolderLookupStats stats) {
+        mHolderLookupStats = stats;
+    }
+
+    /**
+     * Sets a {@link FrameWorkStats} that measures the time this RecyclerView spends scrolling,
+     * laying out, prefetching, creating and binding ViewHolders in each frame, and flags frames
+     * that go over budget.
+     * <p>
+     * Pass null to stop measuring. No bookkeeping happens while no stats are set.
+     *
+     * @param stats The stats to record into, must not be shared with other RecyclerViews.
+     */
+    public void setFrameWorkStats(@Nullable FrameWorkStats stats) {
+        mFrameWorkStats = stats;
+    }
+
+    /**
+     * Starts preparing the bind model of the given position in the background, if the adapter
+     * supports it for the position's view type.
+     *
+     * @see Adapter#prepareBind(int)
+     */
+    void requestBindPreparation(int position) {
+        if (mAdapter == null) {
+            return;
+        }
+        // models are keyed by adapter position, like the binds that consume them
+        final int offsetPosition = mAdapterHelper.findPositionOffset(position);
+        if (offsetPosition < 0 || offsetPosition >= mAdapter.getItemCount()
+                || !mAdapter.canPrepareBind(mAdapter.getItemViewType(offsetPosition))) {
+            return;
+        }
+        if (mBindPreparer == null) {
+            mBindPreparer = new BindPreparer();
+        }
+        mBindPreparer.requestPrepare(mAdapter, offsetPosition);
+    }
+
+    void invalidateBindPreparation() {
+        if (mBindPreparer != null) {
+            mBindPreparer.invalidate();
+        }
+    }
+
+    void beginFrameWorkSection(int section) {
+        if (mFrameWorkStats != null) {
+            mFrameWorkStats.beginSection(section);
+        }
+    }
+
+    void endFrameWorkSection(int section) {
+        if (mFrameWorkStats != null) {
+            mFrameWorkStats.endSection(section, INVALID_TYPE);
+        }
+    }
+
     /**
      * Set the number of offscreen views to retain before adding them to the potentially shared
      * {@link #getRecycledViewPool() recycled view pool}.
@@ -1356,6 +1456,22 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
         mRecycler.setViewCacheSize(size);
     }
 
+    /**
+     * Lets the offscreen view cache grow beyond {@link #setItemViewCacheSize(int)} while the
+     * user scrolls back and forth.
+     * <p>
+     * When an item that was recently pushed out of the cache has to be rebound from the
+     * {@link #getRecycledViewPool() recycled view pool}, the cache grows by one view, up to
+     * <code>maxSize</code>. After a while of scrolling without such misses and without changing
+     * direction, it shrinks back one view at a time.
+     *
+     * @param maxSize Maximum number of views to cache offscreen, or 0 to turn adaptive sizing off
+     *                and only use the size set by {@link #setItemViewCacheSize(int)}.
+     */
+    public void setAdaptiveItemViewCacheMaxSize(int maxSize) {
+        mRecycler.setAdaptiveViewCacheMax(maxSize);
+    }
+
     /**
      * Return the current scrolling state of the RecyclerView.
      *
@@ -1578,6 +1694,9 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
 
     @Override
     public void scrollTo(int x, int y) {
+        if (mLayout != null && !mLayoutFrozen && mLayout.scrollToAbsoluteOffset(x, y)) {
+            return;
+        }
         Log.w(TAG, "RecyclerView does not support scrolling to an absolute position. "
                 + "Use scrollToPosition instead");
     }
@@ -1610,7 +1729,9 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
     void consumePendingUpdateOperations() {
         if (!mFirstLayoutComplete || mDataSetHasChangedAfterLayout) {
             TraceCompat.beginSection(TRACE_ON_DATA_SET_CHANGE_LAYOUT_TAG);
+            beginFrameWorkSection(FrameWorkStats.SECTION_LAYOUT);
             dispatchLayout();
+            endFrameWorkSection(FrameWorkStats.SECTION_LAYOUT);
             TraceCompat.endSection();
             return;
         }
@@ -1624,6 +1745,7 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
                 .hasAnyUpdateTypes(AdapterHelper.UpdateOp.ADD | AdapterHelper.UpdateOp.REMOVE
                         | AdapterHelper.UpdateOp.MOVE)) {
             TraceCompat.beginSection(TRACE_HANDLE_ADAPTER_UPDATES_TAG);
+            beginFrameWorkSection(FrameWorkStats.SECTION_ADAPTER_UPDATES);
             eatRequestLayout();
             onEnterLayoutOrScroll();
             mAdapterHelper.preProcess();
@@ -1633,14 +1755,18 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
                 } else {
                     // no need to layout, clean state
                     mAdapterHelper.consumePostponedUpdates();
+                    mAdapterHelper.clearUpdatedItemCount();
                 }
             }
             resumeRequestLayout(true);
             onExitLayoutOrScroll();
+            endFrameWorkSection(FrameWorkStats.SECTION_ADAPTER_UPDATES);
             TraceCompat.endSection();
         } else if (mAdapterHelper.hasPendingUpdates()) {
             TraceCompat.beginSection(TRACE_ON_DATA_SET_CHANGE_LAYOUT_TAG);
+            beginFrameWorkSection(FrameWorkStats.SECTION_LAYOUT);
             dispatchLayout();
+            endFrameWorkSection(FrameWorkStats.SECTION_LAYOUT);
             TraceCompat.endSection();
         }
     }
@@ -1681,6 +1807,7 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
             eatRequestLayout();
             onEnterLayoutOrScroll();
             TraceCompat.beginSection(TRACE_SCROLL_TAG);
+            beginFrameWorkSection(FrameWorkStats.SECTION_SCROLL);
             if (x != 0) {
                 consumedX = mLayout.scrollHorizontallyBy(x, mRecycler, mState);
                 unconsumedX = x - consumedX;
@@ -1689,6 +1816,7 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
                 consumedY = mLayout.scrollVerticallyBy(y, mRecycler, mState);
                 unconsumedY = y - consumedY;
             }
+            endFrameWorkSection(FrameWorkStats.SECTION_SCROLL);
             TraceCompat.endSection();
             repositionShadowingViews();
             onExitLayoutOrScroll();
@@ -2091,6 +2219,26 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
         return mMaxFlingVelocity;
     }
 
+    /**
+     * Returns the current speed of a fling in pixels per second, or 0 if the RecyclerView isn't
+     * settling from a fling.
+     */
+    float getCurrentFlingVelocity() {
+        return mScrollState == SCROLL_STATE_SETTLING ? mViewFlinger.getFlingVelocity() : 0;
+    }
+
+    /**
+     * Returns a number that changes whenever the children may have been laid out or offset, so
+     * that helpers can cache data derived from the child bounds. Children being attached or
+     * detached are not counted, use an {@link OnChildAttachStateChangeListener} for those.
+     *
+     * @hide
+     */
+    @RestrictTo(LIBRARY_GROUP)
+    public int getChildBoundsGeneration() {
+        return mChildBoundsGeneration;
+    }
+
     /**
      * Apply a pull to relevant overscroll glow effects
      */
@@ -3088,6 +3236,38 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
         }
     }
 
+    /**
+     * Sets the largest adapter update batch that runs item animations.
+     * <p>
+     * All the changes the Adapter notifies between two layouts form a batch. If the items
+     * touched by a batch add up to more than <code>maxItemCount</code> (a move counts as one
+     * item), the layout for that batch runs as if there was no {@link ItemAnimator}: no
+     * pre-layout pass, and no pre or post layout information is recorded for the children. This
+     * keeps large bulk updates, whose animations would hardly be readable anyway, as cheap as
+     * a plain layout. Smaller batches keep animating as usual.
+     * <p>
+     * By default, every batch is animated.
+     *
+     * @param maxItemCount The largest number of items a batch may touch and still be animated,
+     *                     or {@link Integer#MAX_VALUE} to animate all batches.
+     * @see #getMaxAnimatedBatchSize()
+     */
+    public void setMaxAnimatedBatchSize(int maxItemCount) {
+        if (maxItemCount < 0) {
+            throw new IllegalArgumentException("Batch size cannot be negative");
+        }
+        mMaxAnimatedBatchSize = maxItemCount;
+    }
+
+    /**
+     * Returns the largest adapter update batch that runs item animations.
+     *
+     * @see #setMaxAnimatedBatchSize(int)
+     */
+    public int getMaxAnimatedBatchSize() {
+        return mMaxAnimatedBatchSize;
+    }
+
     void onEnterLayoutOrScroll() {
         mLayoutOrScrollCounter++;
     }
@@ -3199,7 +3379,17 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
     }
 
     private boolean predictiveItemAnimationsEnabled() {
-        return (mItemAnimator != null && mLayout.supportsPredictiveItemAnimations());
+        return (itemAnimationsEnabledForBatch() && mLayout.supportsPredictiveItemAnimations());
+    }
+
+    /**
+     * Returns false if the pending adapter updates should be laid out without animations, either
+     * because there is no ItemAnimator or because the batch is too large to be worth it. In that
+     * case the layout skips the pre-layout pass and records nothing in the ViewInfoStore.
+     */
+    private boolean itemAnimationsEnabledForBatch() {
+        return mItemAnimator != null
+                && mAdapterHelper.getUpdatedItemCount() <= mMaxAnimatedBatchSize;
     }
 
     /**
@@ -3225,7 +3415,7 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
         }
         boolean animationTypeSupported = mItemsAddedOrRemoved || mItemsChanged;
         mState.mRunSimpleAnimations = mFirstLayoutComplete
-                && mItemAnimator != null
+                && itemAnimationsEnabledForBatch()
                 && (mDataSetHasChangedAfterLayout
                 || animationTypeSupported
                 || mLayout.mRequestedSimpleAnimations)
@@ -3540,6 +3730,7 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
      * This step might be run multiple times if necessary (e.g. measure).
      */
     private void dispatchLayoutStep2() {
+        mChildBoundsGeneration++;
         eatRequestLayout();
         onEnterLayoutOrScroll();
         mState.assertLayoutStep(State.STEP_LAYOUT | State.STEP_ANIMATIONS);
@@ -3625,6 +3816,7 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
         mLayout.removeAndRecycleScrapInt(mRecycler);
         mState.mPreviousLayoutItemCount = mState.mItemCount;
         mDataSetHasChangedAfterLayout = false;
+        mAdapterHelper.clearUpdatedItemCount();
         mState.mRunSimpleAnimations = false;
 
         mState.mRunPredictiveAnimations = false;
@@ -3810,7 +4002,9 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
     @Override
     protected void onLayout(boolean changed, int l, int t, int r, int b) {
         TraceCompat.beginSection(TRACE_ON_LAYOUT_TAG);
+        beginFrameWorkSection(FrameWorkStats.SECTION_LAYOUT);
         dispatchLayout();
+        endFrameWorkSection(FrameWorkStats.SECTION_LAYOUT);
         TraceCompat.endSection();
         mFirstLayoutComplete = true;
     }
@@ -3892,6 +4086,10 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
         if (needsInvalidate) {
             ViewCompat.postInvalidateOnAnimation(this);
         }
+
+        if (mFrameWorkStats != null) {
+            mFrameWorkStats.onFrameDrawn(getDrawingTime());
+        }
     }
 
     @Override
@@ -4448,6 +4646,7 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
      * @param dy Vertical pixel offset to apply to the bounds of all child views
      */
     public void offsetChildrenVertical(int dy) {
+        mChildBoundsGeneration++;
         final int childCount = mChildHelper.getChildCount();
         for (int i = 0; i < childCount; i++) {
             mChildHelper.getChildAt(i).offsetTopAndBottom(dy);
@@ -4486,6 +4685,7 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
      * @param dx Horizontal pixel offset to apply to the bounds of all child views
      */
     public void offsetChildrenHorizontal(int dx) {
+        mChildBoundsGeneration++;
         final int childCount = mChildHelper.getChildCount();
         for (int i = 0; i < childCount; i++) {
             mChildHelper.getChildAt(i).offsetLeftAndRight(dx);
@@ -4563,6 +4763,7 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
 
     void dispatchOnScrolled(int hresult, int vresult) {
         mDispatchScrollCounter++;
+        mRecycler.onScrolled(hresult, vresult);
         // Pass the current scrollX/scrollY values; no actual change in these properties occurred
         // but some general-purpose code may choose to respond to changes this way.
         final int scrollX = getScrollX();
@@ -4652,6 +4853,9 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
         // Tracks if postAnimationCallback should be re-attached when it is done
         private boolean mReSchedulePostAnimationCallback = false;
 
+        // Whether the scroller runs a fling rather than a smooth scroll
+        private boolean mFlinging = false;
+
         public ViewFlinger() {
             mScroller = ScrollerCompat.create(getContext(), sQuinticInterpolator);
         }
@@ -4682,6 +4886,7 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
                     eatRequestLayout();
                     onEnterLayoutOrScroll();
                     TraceCompat.beginSection(TRACE_SCROLL_TAG);
+                    beginFrameWorkSection(FrameWorkStats.SECTION_SCROLL);
                     if (dx != 0) {
                         hresult = mLayout.scrollHorizontallyBy(dx, mRecycler, mState);
                         overscrollX = dx - hresult;
@@ -4690,6 +4895,7 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
                         vresult = mLayout.scrollVerticallyBy(dy, mRecycler, mState);
                         overscrollY = dy - vresult;
                     }
+                    endFrameWorkSection(FrameWorkStats.SECTION_SCROLL);
                     TraceCompat.endSection();
                     repositionShadowingViews();
 
@@ -4799,6 +5005,7 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
         public void fling(int velocityX, int velocityY) {
             setScrollState(SCROLL_STATE_SETTLING);
             mLastFlingX = mLastFlingY = 0;
+            mFlinging = true;
             mScroller.fling(0, 0, velocityX, velocityY,
                     Integer.MIN_VALUE, Integer.MAX_VALUE, Integer.MIN_VALUE, Integer.MAX_VALUE);
             postOnAnimation();
@@ -4856,13 +5063,23 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
             }
             setScrollState(SCROLL_STATE_SETTLING);
             mLastFlingX = mLastFlingY = 0;
+            mFlinging = false;
             mScroller.startScroll(0, 0, dx, dy, duration);
             postOnAnimation();
         }
 
+        /**
+         * Returns the current speed of the fling in pixels per second, or 0 if no fling is
+         * running.
+         */
+        float getFlingVelocity() {
+            return mFlinging && !mScroller.isFinished() ? mScroller.getCurrVelocity() : 0;
+        }
+
         public void stop() {
             removeCallbacks(this);
             mScroller.abortAnimation();
+            mFlinging = false;
         }
 
     }
@@ -4894,6 +5111,7 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
         @Override
         public void onChanged() {
             assertNotInLayoutOrScroll(null);
+            invalidateBindPreparation();
             mState.mStructureChanged = true;
 
             setDataSetChangedAfterLayout();
@@ -4905,6 +5123,7 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
         @Override
         public void onItemRangeChanged(int positionStart, int itemCount, Object payload) {
             assertNotInLayoutOrScroll(null);
+            invalidateBindPreparation();
             if (mAdapterHelper.onItemRangeChanged(positionStart, itemCount, payload)) {
                 triggerUpdateProcessor();
             }
@@ -4913,6 +5132,7 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
         @Override
         public void onItemRangeInserted(int positionStart, int itemCount) {
             assertNotInLayoutOrScroll(null);
+            invalidateBindPreparation();
             if (mAdapterHelper.onItemRangeInserted(positionStart, itemCount)) {
                 triggerUpdateProcessor();
             }
@@ -4921,6 +5141,7 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
         @Override
         public void onItemRangeRemoved(int positionStart, int itemCount) {
             assertNotInLayoutOrScroll(null);
+            invalidateBindPreparation();
             if (mAdapterHelper.onItemRangeRemoved(positionStart, itemCount)) {
                 triggerUpdateProcessor();
             }
@@ -4929,6 +5150,7 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
         @Override
         public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
             assertNotInLayoutOrScroll(null);
+            invalidateBindPreparation();
             if (mAdapterHelper.onItemRangeMoved(fromPosition, toPosition, itemCount)) {
                 triggerUpdateProcessor();
             }
@@ -4955,13 +5177,36 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
     public static class RecycledViewPool {
         private static final int DEFAULT_MAX_SCRAP = 5;
 
+        /**
+         * Quantile of create/bind time compared against prefetch deadlines unless changed with
+         * {@link #setDeadlineQuantile(float)}.
+         */
+        private static final float DEFAULT_DEADLINE_QUANTILE = 0.9f;
+
+        /**
+         * Number of {@link #getRecycledView(int)} and {@link #putRecycledView(ViewHolder)} calls
+         * between two resizes when adaptive sizing is enabled.
+         */
+        private static final int ADAPTIVE_SIZING_INTERVAL = 128;
+
+        /**
+         * Adaptive sizing never shrinks a view type below this many pooled holders.
+         */
+        private static final int MIN_ADAPTIVE_MAX_SCRAP = 1;
+
+        /**
+         * How long a holder may sit in the pool unused before {@link #onTrimMemory(int)} releases
+         * it under moderate pressure, when no idle time was set with {@link #setMaxIdleTime(long)}.
+         */
+        private static final long TRIM_MEMORY_IDLE_MS = 30000;
+
         /**
          * Tracks both pooled holders, as well as create/bind timing metadata for the given type.
          * <p>
-         * Note that this tracks running averages of create/bind time across all RecyclerViews
+         * Note that this tracks create and bind time distributions across all RecyclerViews
          * (and, indirectly, Adapters) that use this pool.
          * <p>
-         * 1) This enables us to track average create and bind times across multiple adapters. Even
+         * 1) This enables us to track create and bind times across multiple adapters. Even
          * though create (and especially bind) may behave differently for different Adapter
          * subclasses, sharing the pool is a strong signal that they'll perform similarly, per type.
          * <p>
@@ -4972,14 +5217,93 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
         static class ScrapData {
             ArrayList<ViewHolder> mScrapHeap = new ArrayList<>();
             int mMaxScrap = DEFAULT_MAX_SCRAP;
-            long mCreateRunningAverageNs = 0;
-            long mBindRunningAverageNs = 0;
+            final DurationStats mCreateStats = new DurationStats();
+            final DurationStats mBindStats = new DurationStats();
+            /**
+             * Holders of this type being created by {@link AsyncHolderCreator}. Only touched on
+             * the UI thread.
+             */
+            int mAsyncCreatesInFlight = 0;
+
+            // Demand tracked for adaptive sizing, reset after every resize.
+            /**
+             * True once {@link #setMaxRecycledViews(int, int)} was called for this type, adaptive
+             * sizing leaves it alone from then on.
+             */
+            boolean mMaxScrapFixed = false;
+            int mMisses = 0;
+            int mDrops = 0;
+            /**
+             * Smallest heap size seen since the last resize, that is the number of pooled holders
+             * nobody needed in that time.
+             */
+            int mMinScrapSize = 0;
+
+            /**
+             * {@link SystemClock#uptimeMillis()} of the last get or put for this type, to release
+             * least recently used types first under memory pressure.
+             */
+            long mLastUsedMs = 0;
+        }
+
+        /**
+         * Streaming quantile estimate over the most recent durations of one kind of work.
+         * <p>
+         * A mean hides bimodal costs such as image cache hits and misses: a deadline check against
+         * it succeeds for the expensive case and the frame is dropped. Keeping a small window of
+         * recent samples lets callers ask for a high quantile instead, and still follows changes in
+         * cost as old samples fall out of the window.
+         */
+        static class DurationStats {
+            static final int WINDOW_SIZE = 32;
+
+            private final long[] mSamples = new long[WINDOW_SIZE];
+            private final long[] mSorted = new long[WINDOW_SIZE];
+            private int mCount;
+            private int mNext;
+            private boolean mSortedValid;
+
+            void add(long durationNs) {
+                mSamples[mNext] = durationNs;
+                mNext = (mNext + 1) % WINDOW_SIZE;
+                if (mCount < WINDOW_SIZE) {
+                    mCount++;
+                }
+                mSortedValid = false;
+            }
+
+            /**
+             * Returns the estimated duration at the given quantile, or 0 if nothing was recorded.
+             *
+             * @param quantile Quantile in (0, 1], e.g. 0.9 for P90.
+             */
+            long getQuantile(float quantile) {
+                if (mCount == 0) {
+                    return 0;
+                }
+                if (!mSortedValid) {
+                    System.arraycopy(mSamples, 0, mSorted, 0, mCount);
+                    Arrays.sort(mSorted, 0, mCount);
+                    mSortedValid = true;
+                }
+                final int index = (int) Math.ceil(quantile * mCount) - 1;
+                return mSorted[Math.max(0, Math.min(mCount - 1, index))];
+            }
         }
 
         SparseArray<ScrapData> mScrap = new SparseArray<>();
 
         private int mAttachCount = 0;
 
+        private float mDeadlineQuantile = DEFAULT_DEADLINE_QUANTILE;
+
+        // 0 while idle holders are kept
+        private long mMaxIdleMs = 0;
+
+        private boolean mAdaptiveSizing = false;
+        private int mAdaptiveSizingBudget = 0;
+        private int mAdaptiveSizingEvents = 0;
+
         public void clear() {
             for (int i = 0; i < mScrap.size(); i++) {
                 ScrapData data = mScrap.valueAt(i);
@@ -4989,6 +5313,11 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
 
         public void setMaxRecycledViews(int viewType, int max) {
             ScrapData scrapData = getScrapDataForType(viewType);
+            scrapData.mMaxScrapFixed = true;
+            setMaxScrap(scrapData, max);
+        }
+
+        private void setMaxScrap(ScrapData scrapData, int max) {
             scrapData.mMaxScrap = max;
             final ArrayList<ViewHolder> scrapHeap = scrapData.mScrapHeap;
             if (scrapHeap != null) {
@@ -4998,6 +5327,208 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
             }
         }
 
+        /**
+         * Enables or disables adaptive sizing of the pool.
+         * <p>
+         * When enabled, the pool watches each view type for holders it had to drop because the type
+         * was full and that then had to be created again, as well as for pooled holders nobody
+         * asks for. It periodically grows the former and shrinks the latter, keeping the sum of
+         * per type limits within {@link #setAdaptiveSizingBudget(int)}.
+         * <p>
+         * View types configured with {@link #setMaxRecycledViews(int, int)} keep their limit.
+         *
+         * @param enabled True to resize view types based on demand.
+         */
+        public void setAdaptiveSizingEnabled(boolean enabled) {
+            if (mAdaptiveSizing == enabled) {
+                return;
+            }
+            mAdaptiveSizing = enabled;
+            mAdaptiveSizingEvents = 0;
+            if (enabled) {
+                for (int i = 0; i < mScrap.size(); i++) {
+                    resetDemand(mScrap.valueAt(i));
+                }
+            }
+        }
+
+        /**
+         * Sets the total number of holders, across all view types, adaptive sizing may allow the
+         * pool to keep. Adaptive sizing never grows a type beyond this budget but does not shrink
+         * types only to get back under it.
+         * <p>
+         * Defaults to {@link #DEFAULT_MAX_SCRAP} times the number of view types the pool has seen
+         * so far, recomputed at every resize so that view types showing up later get their share.
+         *
+         * @param maxTotalScrap Maximum sum of the per type limits, or 0 for the default.
+         */
+        public void setAdaptiveSizingBudget(int maxTotalScrap) {
+            mAdaptiveSizingBudget = maxTotalScrap;
+        }
+
+        private void onAdaptiveSizingEvent() {
+            if (++mAdaptiveSizingEvents >= ADAPTIVE_SIZING_INTERVAL) {
+                mAdaptiveSizingEvents = 0;
+                adaptMaxScrap();
+            }
+        }
+
+        private static void resetDemand(ScrapData scrapData) {
+            scrapData.mMisses = 0;
+            scrapData.mDrops = 0;
+            scrapData.mMinScrapSize = scrapData.mScrapHeap.size();
+        }
+
+        /**
+         * Resizes view types based on the demand seen since the last resize.
+         */
+        void adaptMaxScrap() {
+            final int budget = mAdaptiveSizingBudget > 0
+                    ? mAdaptiveSizingBudget : DEFAULT_MAX_SCRAP * mScrap.size();
+            // first shrink types that held holders nobody asked for, and see what's left
+            int total = 0;
+            for (int i = 0; i < mScrap.size(); i++) {
+                final ScrapData scrapData = mScrap.valueAt(i);
+                if (!scrapData.mMaxScrapFixed && scrapData.mMisses == 0
+                        && scrapData.mDrops == 0 && scrapData.mMinScrapSize > 0) {
+                    setMaxScrap(scrapData, Math.max(MIN_ADAPTIVE_MAX_SCRAP,
+                            scrapData.mMaxScrap - (scrapData.mMinScrapSize + 1) / 2));
+                }
+                total += scrapData.mMaxScrap;
+            }
+            // then grow types that dropped holders and had to create new ones afterwards
+            for (int i = 0; i < mScrap.size(); i++) {
+                final ScrapData scrapData = mScrap.valueAt(i);
+                if (!scrapData.mMaxScrapFixed && scrapData.mMisses > 0 && scrapData.mDrops > 0) {
+                    final int grow = Math.min(Math.min(scrapData.mMisses, scrapData.mDrops),
+                            budget - total);
+                    if (grow > 0) {
+                        scrapData.mMaxScrap += grow;
+                        total += grow;
+                    }
+                }
+                resetDemand(scrapData);
+            }
+        }
+
+        /**
+         * Creates ViewHolders of the given type ahead of time, until the pool holds
+         * <code>count</code> of them, so the first scroll of a list doesn't have to.
+         * <p>
+         * Without an executor, one holder is created each time the UI thread's message queue goes
+         * idle. With an executor, holders are created on it, which requires the adapter to return
+         * true from {@link Adapter#isViewTypeCreationThreadSafe(int)} for the type. Either way the
+         * creation time is recorded, so prefetch has estimates for the type from the first frame.
+         * <p>
+         * The pool never holds more than its limit for the type, see
+         * {@link #setMaxRecycledViews(int, int)}. This method must be called on the UI thread.
+         *
+         * @param parent   The ViewGroup passed to {@link Adapter#onCreateViewHolder(ViewGroup, int)},
+         *                 usually the RecyclerView that will use the holders.
+         * @param adapter  The Adapter creating the holders.
+         * @param viewType The view type to create holders of.
+         * @param count    Number of holders of the type the pool should hold.
+         * @param executor Executor to create holders on, or null to create them in idle time on
+         *                 the UI thread.
+         */
+        public void prewarm(ViewGroup parent, Adapter adapter, int viewType, int count,
+                            @Nullable Executor executor) {
+            if (executor != null && !adapter.isViewTypeCreationThreadSafe(viewType)) {
+                throw new IllegalArgumentException("View type " + viewType + " cannot be created"
+                        + " on an executor, its creation is not thread safe");
+            }
+            final ScrapData scrapData = getScrapDataForType(viewType);
+            final int missing = Math.min(count, scrapData.mMaxScrap)
+                    - scrapData.mScrapHeap.size() - scrapData.mAsyncCreatesInFlight;
+            if (missing <= 0) {
+                return;
+            }
+            scrapData.mAsyncCreatesInFlight += missing;
+            if (executor == null) {
+                Looper.myQueue().addIdleHandler(
+                        new PrewarmTask(parent, adapter, viewType, missing, null));
+            } else {
+                final Handler handler = new Handler();
+                for (int i = 0; i < missing; i++) {
+                    executor.execute(new PrewarmTask(parent, adapter, viewType, 1, handler));
+                }
+            }
+        }
+
+        /**
+         * Creates holders for {@link #prewarm(ViewGroup, Adapter, int, int, Executor)}, either as
+         * an idle handler on the UI thread or as a Runnable on an executor that posts the result
+         * back to the UI thread.
+         */
+        private class PrewarmTask implements Runnable, MessageQueue.IdleHandler {
+            final ViewGroup mParent;
+            final Adapter mAdapter;
+            final int mViewType;
+            final Handler mHandler;
+            int mRemaining;
+
+            ViewHolder mHolder;
+            long mCreateTimeNs;
+            RuntimeException mError;
+
+            PrewarmTask(ViewGroup parent, Adapter adapter, int viewType, int count,
+                        Handler handler) {
+                mParent = parent;
+                mAdapter = adapter;
+                mViewType = viewType;
+                mRemaining = count;
+                mHandler = handler;
+            }
+
+            private void create() {
+                final long startNs = System.nanoTime();
+                try {
+                    mHolder = mAdapter.createViewHolder(mParent, mViewType);
+                } catch (RuntimeException e) {
+                    mError = e;
+                }
+                mCreateTimeNs = System.nanoTime() - startNs;
+            }
+
+            private void deliver() {
+                final ScrapData scrapData = getScrapDataForType(mViewType);
+                if (mError != null) {
+                    // the task stops here, release the holders it won't create either
+                    scrapData.mAsyncCreatesInFlight -= mRemaining;
+                    mRemaining = 0;
+                    throw mError;
+                }
+                mRemaining--;
+                scrapData.mAsyncCreatesInFlight--;
+                factorInCreateTime(mViewType, mCreateTimeNs);
+                if (ALLOW_THREAD_GAP_WORK) {
+                    final RecyclerView innerView = findNestedRecyclerView(mHolder.itemView);
+                    if (innerView != null) {
+                        mHolder.mNestedRecyclerView = new WeakReference<>(innerView);
+                    }
+                }
+                putRecycledView(mHolder);
+                mHolder = null;
+            }
+
+            @Override
+            public boolean queueIdle() {
+                create();
+                deliver();
+                return mRemaining > 0;
+            }
+
+            @Override
+            public void run() {
+                if (mHolder == null && mError == null) {
+                    create();
+                    mHandler.post(this);
+                } else {
+                    deliver();
+                }
+            }
+        }
+
         /**
          * Returns the current number of Views held by the RecycledViewPool of the given view type.
          */
@@ -5006,14 +5537,35 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
         }
 
         public ViewHolder getRecycledView(int viewType) {
+            if (mAdaptiveSizing) {
+                return getRecycledViewAdaptive(viewType);
+            }
             final ScrapData scrapData = mScrap.get(viewType);
-            if (scrapData != null && !scrapData.mScrapHeap.isEmpty()) {
-                final ArrayList<ViewHolder> scrapHeap = scrapData.mScrapHeap;
-                return scrapHeap.remove(scrapHeap.size() - 1);
+            if (scrapData != null) {
+                scrapData.mLastUsedMs = SystemClock.uptimeMillis();
+                if (!scrapData.mScrapHeap.isEmpty()) {
+                    final ArrayList<ViewHolder> scrapHeap = scrapData.mScrapHeap;
+                    return scrapHeap.remove(scrapHeap.size() - 1);
+                }
             }
             return null;
         }
 
+        private ViewHolder getRecycledViewAdaptive(int viewType) {
+            final ScrapData scrapData = getScrapDataForType(viewType);
+            final ArrayList<ViewHolder> scrapHeap = scrapData.mScrapHeap;
+            scrapData.mLastUsedMs = SystemClock.uptimeMillis();
+            ViewHolder holder = null;
+            if (scrapHeap.isEmpty()) {
+                scrapData.mMisses++;
+            } else {
+                holder = scrapHeap.remove(scrapHeap.size() - 1);
+                scrapData.mMinScrapSize = Math.min(scrapData.mMinScrapSize, scrapHeap.size());
+            }
+            onAdaptiveSizingEvent();
+            return holder;
+        }
+
         int size() {
             int count = 0;
             for (int i = 0; i < mScrap.size(); i++) {
@@ -5027,43 +5579,175 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
 
         public void putRecycledView(ViewHolder scrap) {
             final int viewType = scrap.getItemViewType();
-            final ArrayList scrapHeap = getScrapDataForType(viewType).mScrapHeap;
-            if (mScrap.get(viewType).mMaxScrap <= scrapHeap.size()) {
+            final ScrapData scrapData = getScrapDataForType(viewType);
+            final ArrayList<ViewHolder> scrapHeap = scrapData.mScrapHeap;
+            final long nowMs = SystemClock.uptimeMillis();
+            scrapData.mLastUsedMs = nowMs;
+            if (mMaxIdleMs > 0) {
+                // holders at the bottom of the heap may never be reached while the type is busy
+                releaseIdle(scrapData, nowMs - mMaxIdleMs);
+            }
+            if (scrapData.mMaxScrap <= scrapHeap.size()) {
+                if (mAdaptiveSizing) {
+                    scrapData.mDrops++;
+                    onAdaptiveSizingEvent();
+                }
                 return;
             }
             if (DEBUG && scrapHeap.contains(scrap)) {
                 throw new IllegalArgumentException("this scrap item already exists");
             }
             scrap.resetInternal();
+            scrap.mPooledTimeMs = nowMs;
             scrapHeap.add(scrap);
+            if (mAdaptiveSizing) {
+                onAdaptiveSizingEvent();
+            }
         }
 
-        long runningAverage(long oldAverage, long newValue) {
-            if (oldAverage == 0) {
-                return newValue;
+        /**
+         * Sets how long a holder may stay in the pool without being reused before it is released.
+         * Idle holders of a type are released when the type is used again, and for all types on
+         * {@link #onTrimMemory(int)}.
+         * <p>
+         * Off by default: holders are kept until they are reused, the pool is cleared or
+         * {@link #onTrimMemory(int)} releases them.
+         *
+         * @param maxIdleMs Maximum idle time in milliseconds, or 0 to keep idle holders.
+         */
+        public void setMaxIdleTime(long maxIdleMs) {
+            mMaxIdleMs = maxIdleMs;
+        }
+
+        /**
+         * Releases pooled holders depending on how much memory the system asks back. Call this
+         * from {@link ComponentCallbacks2#onTrimMemory(int)} of the Application or Activity that
+         * shares this pool, with the level it received.
+         * <ul>
+         * <li>Moderate running pressure releases holders idle for longer than
+         * {@link #setMaxIdleTime(long)}, or 30 seconds if it wasn't set.</li>
+         * <li>Low running pressure and a hidden UI also release half of the remaining holders,
+         * taking them from the least recently used view types first.</li>
+         * <li>Critical running pressure, or the process being in the background, releases
+         * everything, as {@link #clear()} does.</li>
+         * </ul>
+         *
+         * @param level The trim level passed to onTrimMemory.
+         */
+        public void onTrimMemory(int level) {
+            if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND
+                    || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+                clear();
+                return;
+            }
+            if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE) {
+                final long idleSinceMs = SystemClock.uptimeMillis()
+                        - (mMaxIdleMs > 0 ? mMaxIdleMs : TRIM_MEMORY_IDLE_MS);
+                for (int i = 0; i < mScrap.size(); i++) {
+                    releaseIdle(mScrap.valueAt(i), idleSinceMs);
+                }
+            }
+            if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+                releaseLeastRecentlyUsed(size() / 2);
+            }
+        }
+
+        /**
+         * Releases holders of the type that were pooled before the given time. The heap is
+         * ordered by pooling time, so the oldest holders are at its start.
+         */
+        private static void releaseIdle(ScrapData scrapData, long idleSinceMs) {
+            final ArrayList<ViewHolder> scrapHeap = scrapData.mScrapHeap;
+            int idleCount = 0;
+            while (idleCount < scrapHeap.size()
+                    && scrapHeap.get(idleCount).mPooledTimeMs < idleSinceMs) {
+                idleCount++;
+            }
+            if (idleCount > 0) {
+                scrapHeap.subList(0, idleCount).clear();
+                scrapData.mMinScrapSize = Math.min(scrapData.mMinScrapSize, scrapHeap.size());
             }
-            return (oldAverage / 4 * 3) + (newValue / 4);
+        }
+
+        /**
+         * Releases holders, oldest first, of the least recently used view types until at most
+         * targetSize holders are left in the pool.
+         */
+        private void releaseLeastRecentlyUsed(int targetSize) {
+            int size = size();
+            while (size > targetSize) {
+                ScrapData lru = null;
+                for (int i = 0; i < mScrap.size(); i++) {
+                    final ScrapData scrapData = mScrap.valueAt(i);
+                    if (!scrapData.mScrapHeap.isEmpty()
+                            && (lru == null || scrapData.mLastUsedMs < lru.mLastUsedMs)) {
+                        lru = scrapData;
+                    }
+                }
+                final int release = Math.min(size - targetSize, lru.mScrapHeap.size());
+                lru.mScrapHeap.subList(0, release).clear();
+                lru.mMinScrapSize = Math.min(lru.mMinScrapSize, lru.mScrapHeap.size());
+                size -= release;
+            }
+        }
+
+        /**
+         * Sets the quantile of recorded create and bind times that prefetch compares against its
+         * frame deadline. A higher quantile drops fewer frames for types whose cost varies a lot,
+         * at the price of prefetching them less often. Cheap types are prefetched either way.
+         * <p>
+         * Defaults to 0.9 (P90).
+         *
+         * @param quantile Quantile in the range (0, 1]. Use 0.5 for the median.
+         */
+        public void setDeadlineQuantile(float quantile) {
+            if (!(quantile > 0 && quantile <= 1)) {
+                throw new IllegalArgumentException("quantile must be in (0, 1], was " + quantile);
+            }
+            mDeadlineQuantile = quantile;
+        }
+
+        /**
+         * Returns the estimated time to create a ViewHolder of the given type at the given
+         * quantile, based on recent creations in RecyclerViews using this pool.
+         *
+         * @param viewType The view type.
+         * @param quantile Quantile in the range (0, 1], e.g. 0.5, 0.9 or 0.99.
+         * @return Estimated duration in nanoseconds, or 0 if no creation was recorded yet.
+         */
+        public long getCreateTimeNs(int viewType, float quantile) {
+            return getScrapDataForType(viewType).mCreateStats.getQuantile(quantile);
+        }
+
+        /**
+         * Returns the estimated time to bind a ViewHolder of the given type at the given quantile,
+         * based on recent binds in RecyclerViews using this pool.
+         *
+         * @param viewType The view type.
+         * @param quantile Quantile in the range (0, 1], e.g. 0.5, 0.9 or 0.99.
+         * @return Estimated duration in nanoseconds, or 0 if no bind was recorded yet.
+         */
+        public long getBindTimeNs(int viewType, float quantile) {
+            return getScrapDataForType(viewType).mBindStats.getQuantile(quantile);
         }
 
         void factorInCreateTime(int viewType, long createTimeNs) {
-            ScrapData scrapData = getScrapDataForType(viewType);
-            scrapData.mCreateRunningAverageNs = runningAverage(
-                    scrapData.mCreateRunningAverageNs, createTimeNs);
+            getScrapDataForType(viewType).mCreateStats.add(createTimeNs);
         }
 
         void factorInBindTime(int viewType, long bindTimeNs) {
-            ScrapData scrapData = getScrapDataForType(viewType);
-            scrapData.mBindRunningAverageNs = runningAverage(
-                    scrapData.mBindRunningAverageNs, bindTimeNs);
+            getScrapDataForType(viewType).mBindStats.add(bindTimeNs);
         }
 
         boolean willCreateInTime(int viewType, long approxCurrentNs, long deadlineNs) {
-            long expectedDurationNs = getScrapDataForType(viewType).mCreateRunningAverageNs;
+            long expectedDurationNs = getScrapDataForType(viewType).mCreateStats
+                    .getQuantile(mDeadlineQuantile);
             return expectedDurationNs == 0 || (approxCurrentNs + expectedDurationNs < deadlineNs);
         }
 
         boolean willBindInTime(int viewType, long approxCurrentNs, long deadlineNs) {
-            long expectedDurationNs = getScrapDataForType(viewType).mBindRunningAverageNs;
+            long expectedDurationNs = getScrapDataForType(viewType).mBindStats
+                    .getQuantile(mDeadlineQuantile);
             return expectedDurationNs == 0 || (approxCurrentNs + expectedDurationNs < deadlineNs);
         }
 
@@ -5100,7 +5784,7 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
             }
         }
 
-        private ScrapData getScrapDataForType(int viewType) {
+        ScrapData getScrapDataForType(int viewType) {
             ScrapData scrapData = mScrap.get(viewType);
             if (scrapData == null) {
                 scrapData = new ScrapData();
@@ -5198,8 +5882,62 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
 
         private ViewCacheExtension mViewCacheExtension;
 
+        /**
+         * The {@link HolderLookupStats} tier that served the last successful
+         * {@link #getScrapOrHiddenOrCachedHolderForPosition(int, boolean)}.
+         */
+        int mLastLookupTier;
+
         static final int DEFAULT_CACHE_SIZE = 2;
 
+        /**
+         * View caches smaller than this are scanned, larger ones are looked up through
+         * {@link #mCachedPositionIndex} and {@link #mCachedIdIndex}.
+         */
+        static final int CACHE_INDEX_MIN_SIZE = 8;
+
+        private static final int CACHE_INDEX_DIRTY = 0;
+        private static final int CACHE_INDEX_VALID = 1;
+        /**
+         * Two cached holders share a key, only scanning finds the same holder as before.
+         */
+        private static final int CACHE_INDEX_UNUSABLE = 2;
+
+        /**
+         * Valid holders in {@link #mCachedViews} by layout position, and all of them by item id if
+         * the adapter has stable ids. Updated as holders enter and leave the cache, and rebuilt
+         * lazily after anything that changes positions or flags of cached holders. A hit gives the
+         * holder's index in the list through {@link ViewHolder#mCacheSlot}.
+         */
+        private final SparseArray<ViewHolder> mCachedPositionIndex = new SparseArray<>();
+        private final LongSparseArray<ViewHolder> mCachedIdIndex = new LongSparseArray<>();
+        private int mCacheIndexState = CACHE_INDEX_DIRTY;
+
+        /**
+         * Number of positions pushed out of the cache remembered by adaptive cache sizing.
+         */
+        static final int EVICTED_POSITION_HISTORY = 8;
+
+        /**
+         * Lookups without a miss on a recently evicted position, and without a scroll direction
+         * change, after which adaptive cache sizing gives back one view.
+         */
+        static final int ADAPTIVE_CACHE_SHRINK_LOOKUPS = 100;
+
+        /**
+         * Maximum cache size for adaptive sizing, 0 while it's off.
+         */
+        private int mAdaptiveCacheMax = 0;
+        /**
+         * Views added to the cache size by adaptive sizing.
+         */
+        private int mAdaptiveCacheExtra = 0;
+        private int[] mEvictedPositions;
+        private int mEvictedPositionsNext = 0;
+        private int mLookupsSinceEvictionMiss = 0;
+        private int mLastScrollDx = 0;
+        private int mLastScrollDy = 0;
+
         /**
          * Clear scrap views out of this recycler. Detached views contained within a
          * recycled view pool will remain.
@@ -5219,9 +5957,22 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
             updateViewCacheSize();
         }
 
+        void setAdaptiveViewCacheMax(int maxSize) {
+            mAdaptiveCacheMax = maxSize;
+            mAdaptiveCacheExtra = 0;
+            mLookupsSinceEvictionMiss = 0;
+            if (maxSize > 0) {
+                if (mEvictedPositions == null) {
+                    mEvictedPositions = new int[EVICTED_POSITION_HISTORY];
+                }
+                Arrays.fill(mEvictedPositions, NO_POSITION);
+            }
+            updateViewCacheSize();
+        }
+
         void updateViewCacheSize() {
             int extraCache = mLayout != null ? mLayout.mPrefetchMaxCountObserved : 0;
-            mViewCacheMax = mRequestedCacheMax + extraCache;
+            mViewCacheMax = mRequestedCacheMax + extraCache + mAdaptiveCacheExtra;
 
             // first, try the views that can be recycled
             for (int i = mCachedViews.size() - 1;
@@ -5230,6 +5981,188 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
             }
         }
 
+        /**
+         * Adaptive cache sizing, called for every holder handed out for a layout position.
+         */
+        private void onHolderLookedUp(int position, int lookupTier) {
+            if (lookupTier == HolderLookupStats.TIER_POOL
+                    || lookupTier == HolderLookupStats.TIER_CREATE) {
+                for (int i = 0; i < EVICTED_POSITION_HISTORY; i++) {
+                    if (mEvictedPositions[i] == position) {
+                        // a bigger cache would have kept this one, no rebind needed
+                        mEvictedPositions[i] = NO_POSITION;
+                        mLookupsSinceEvictionMiss = 0;
+                        if (mViewCacheMax < mAdaptiveCacheMax) {
+                            mAdaptiveCacheExtra++;
+                            updateViewCacheSize();
+                        }
+                        return;
+                    }
+                }
+            }
+            if (++mLookupsSinceEvictionMiss >= ADAPTIVE_CACHE_SHRINK_LOOKUPS) {
+                mLookupsSinceEvictionMiss = 0;
+                if (mAdaptiveCacheExtra > 0) {
+                    mAdaptiveCacheExtra--;
+                    updateViewCacheSize();
+                }
+            }
+        }
+
+        void onScrolled(int dx, int dy) {
+            if (mAdaptiveCacheMax <= 0 || (dx == 0 && dy == 0)) {
+                return;
+            }
+            if ((dx ^ mLastScrollDx) < 0 && dx != 0 && mLastScrollDx != 0
+                    || (dy ^ mLastScrollDy) < 0 && dy != 0 && mLastScrollDy != 0) {
+                // going back, items just pushed out of the cache are likely needed again soon
+                mLookupsSinceEvictionMiss = 0;
+            }
+            mLastScrollDx = dx;
+            mLastScrollDy = dy;
+        }
+
+        void invalidateCacheIndex() {
+            mCacheIndexState = CACHE_INDEX_DIRTY;
+        }
+
+        /**
+         * Rebuilds the cache index if needed.
+         *
+         * @return True if the index can be used for lookups.
+         */
+        private boolean ensureCacheIndex() {
+            if (mCachedViews.size() < CACHE_INDEX_MIN_SIZE) {
+                // not worth keeping up to date while it isn't used
+                mCacheIndexState = CACHE_INDEX_DIRTY;
+                return false;
+            }
+            if (mCacheIndexState == CACHE_INDEX_DIRTY) {
+                mCachedPositionIndex.clear();
+                mCachedIdIndex.clear();
+                mCacheIndexState = CACHE_INDEX_VALID;
+                final int cacheSize = mCachedViews.size();
+                for (int i = 0; i < cacheSize && mCacheIndexState == CACHE_INDEX_VALID; i++) {
+                    onCachedViewAdded(mCachedViews.get(i));
+                }
+            }
+            return mCacheIndexState == CACHE_INDEX_VALID;
+        }
+
+        private void onCachedViewAdded(ViewHolder holder) {
+            if (mCacheIndexState != CACHE_INDEX_VALID) {
+                return;
+            }
+            if (!holder.isInvalid()) {
+                final int position = holder.getLayoutPosition();
+                if (mCachedPositionIndex.get(position) != null) {
+                    mCacheIndexState = CACHE_INDEX_UNUSABLE;
+                    return;
+                }
+                mCachedPositionIndex.put(position, holder);
+            }
+            if (mAdapter != null && mAdapter.hasStableIds()) {
+                final long id = holder.getItemId();
+                if (mCachedIdIndex.get(id) != null) {
+                    mCacheIndexState = CACHE_INDEX_UNUSABLE;
+                    return;
+                }
+                mCachedIdIndex.put(id, holder);
+            }
+        }
+
+        /**
+         * Must be called before the holder's position or flags are reset.
+         */
+        private void onCachedViewRemoved(ViewHolder holder) {
+            if (mCacheIndexState == CACHE_INDEX_UNUSABLE) {
+                // the holder sharing a key may be gone now
+                mCacheIndexState = CACHE_INDEX_DIRTY;
+            }
+            if (mCacheIndexState != CACHE_INDEX_VALID) {
+                return;
+            }
+            if (!holder.isInvalid()) {
+                final int position = holder.getLayoutPosition();
+                if (mCachedPositionIndex.get(position) != holder) {
+                    mCacheIndexState = CACHE_INDEX_DIRTY;
+                    return;
+                }
+                mCachedPositionIndex.remove(position);
+            }
+            if (mAdapter != null && mAdapter.hasStableIds()) {
+                final long id = holder.getItemId();
+                if (mCachedIdIndex.get(id) != holder) {
+                    mCacheIndexState = CACHE_INDEX_DIRTY;
+                    return;
+                }
+                mCachedIdIndex.remove(id);
+            }
+        }
+
+        private boolean isCachedAtSlot(ViewHolder holder) {
+            final int slot = holder.mCacheSlot;
+            return slot >= 0 && slot < mCachedViews.size() && mCachedViews.get(slot) == holder;
+        }
+
+        /**
+         * Adds the holder to {@link #mCachedViews} at the given index, keeping the slots of the
+         * holders after it and the cache index up to date.
+         */
+        private void addCachedView(int cacheIndex, ViewHolder holder) {
+            mCachedViews.add(cacheIndex, holder);
+            updateCacheSlots(cacheIndex);
+            onCachedViewAdded(holder);
+        }
+
+        /**
+         * Removes the holder at the given index from {@link #mCachedViews}. Must be called before
+         * the holder's position or flags are reset.
+         */
+        private ViewHolder removeCachedViewAt(int cacheIndex) {
+            final ViewHolder holder = mCachedViews.remove(cacheIndex);
+            holder.mCacheSlot = -1;
+            updateCacheSlots(cacheIndex);
+            onCachedViewRemoved(holder);
+            return holder;
+        }
+
+        private void updateCacheSlots(int fromIndex) {
+            final int cacheSize = mCachedViews.size();
+            for (int i = fromIndex; i < cacheSize; i++) {
+                mCachedViews.get(i).mCacheSlot = i;
+            }
+        }
+
+        /**
+         * Returns the index in {@link #mCachedViews} of the valid holder at the given layout
+         * position, or -1 if there is none.
+         */
+        private int findCachedViewIndexForPosition(int position) {
+            if (ensureCacheIndex()) {
+                final ViewHolder holder = mCachedPositionIndex.get(position);
+                if (holder == null) {
+                    return -1;
+                }
+                if (isCachedAtSlot(holder) && !holder.isInvalid()
+                        && holder.getLayoutPosition() == position) {
+                    return holder.mCacheSlot;
+                }
+                // a key changed without the index being invalidated, scan instead
+                invalidateCacheIndex();
+            }
+            final int cacheSize = mCachedViews.size();
+            for (int i = 0; i < cacheSize; i++) {
+                final ViewHolder holder = mCachedViews.get(i);
+                // invalid view holders may be in cache if adapter has stable ids as they can be
+                // retrieved via getScrapOrCachedViewForId
+                if (!holder.isInvalid() && holder.getLayoutPosition() == position) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
         /**
          * Returns an unmodifiable list of ViewHolders that are currently in the scrap list.
          *
@@ -5291,14 +6224,35 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
             holder.mOwnerRecyclerView = RecyclerView.this;
             final int viewType = holder.getItemViewType();
             long startBindNs = getNanoTime();
-            if (deadlineNs != FOREVER_NS
+            // a prepared model only stands in for a full bind
+            final Object preparedBind = mBindPreparer != null
+                    && holder.getUnmodifiedPayloads().isEmpty()
+                    ? mBindPreparer.peekPrepared(offsetPosition) : null;
+            if (deadlineNs != FOREVER_NS && preparedBind == null
                     && !mRecyclerPool.willBindInTime(viewType, startBindNs, deadlineNs)) {
                 // abort - we have a deadline we can't meet
                 return false;
             }
-            mAdapter.bindViewHolder(holder, offsetPosition);
+            final FrameWorkStats frameWorkStats = mFrameWorkStats;
+            if (frameWorkStats != null) {
+                frameWorkStats.beginSection(FrameWorkStats.SECTION_BIND);
+            }
+            if (preparedBind != null) {
+                mBindPreparer.removePrepared(offsetPosition);
+                mAdapter.bindViewHolder(holder, offsetPosition, preparedBind);
+            } else {
+                mAdapter.bindViewHolder(holder, offsetPosition);
+            }
+            if (frameWorkStats != null) {
+                frameWorkStats.endSection(FrameWorkStats.SECTION_BIND, viewType);
+            }
+            // rebinding a prefetched holder is not a prefetch hit
+            holder.setFlags(0, ViewHolder.FLAG_PREFETCHED);
             long endBindNs = getNanoTime();
-            mRecyclerPool.factorInBindTime(holder.getItemViewType(), endBindNs - startBindNs);
+            if (preparedBind == null) {
+                // applying a model says nothing about how long a full bind takes
+                mRecyclerPool.factorInBindTime(holder.getItemViewType(), endBindNs - startBindNs);
+            }
             attachAccessibilityDelegate(holder.itemView);
             if (mState.isPreLayout()) {
                 holder.mPreLayoutPosition = position;
@@ -5430,6 +6384,7 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
             }
             boolean fromScrapOrHiddenOrCache = false;
             ViewHolder holder = null;
+            int lookupTier = HolderLookupStats.TIER_CHANGED_SCRAP;
             // 0) If there is a changed scrap, try to find from there
             if (mState.isPreLayout()) {
                 holder = getChangedScrapViewForPosition(position);
@@ -5438,7 +6393,7 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
             // 1) Find by position from scrap/hidden list/cache 滚动获取缓存的时候一般都走这个方法
             if (holder == null) {
                 holder = getScrapOrHiddenOrCachedHolderForPosition(position, dryRun);
-                Log.d(TAG, "getScrapOrHiddenOrCachedHolderForPosition: ");
+                lookupTier = mLastLookupTier;
                 if (holder != null) {
                     if (!validateViewHolderForOffsetPosition(holder)) {
                         // recycle holder (and unscrap if relevant) since it can't be used
@@ -5473,7 +6428,7 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
                 if (mAdapter.hasStableIds()) {
                     holder = getScrapOrCachedViewForId(mAdapter.getItemId(offsetPosition),
                             type, dryRun);
-                    Log.d(TAG, "getScrapOrCachedViewForId: ");
+                    lookupTier = HolderLookupStats.TIER_STABLE_ID;
                     if (holder != null) {
                         // update position
                         holder.mPosition = offsetPosition;
@@ -5487,7 +6442,7 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
                             .getViewForPositionAndType(this, position, type);
                     if (view != null) {
                         holder = getChildViewHolder(view);
-                        Log.d(TAG, "getViewForPositionAndType: ");
+                        lookupTier = HolderLookupStats.TIER_VIEW_CACHE_EXTENSION;
                         if (holder == null) {
                             throw new IllegalArgumentException("getViewForPositionAndType returned"
                                     + " a view which does not have a ViewHolder");
@@ -5504,7 +6459,7 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
                                 + position + ") fetching from shared pool");
                     }
                     holder = getRecycledViewPool().getRecycledView(type);
-                    Log.d(TAG, "getRecycledViewPool().getRecycledView(type);: ");
+                    lookupTier = HolderLookupStats.TIER_POOL;
                     if (holder != null) {
                         holder.resetInternal();
                         if (FORCE_INVALIDATE_DISPLAY_LIST) {
@@ -5520,8 +6475,15 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
                         // abort - we have a deadline we can't meet
                         return null;
                     }
+                    final FrameWorkStats frameWorkStats = mFrameWorkStats;
+                    if (frameWorkStats != null) {
+                        frameWorkStats.beginSection(FrameWorkStats.SECTION_CREATE);
+                    }
                     holder = mAdapter.createViewHolder(RecyclerView.this, type);
-                    Log.d(TAG, "createViewHolder");
+                    if (frameWorkStats != null) {
+                        frameWorkStats.endSection(FrameWorkStats.SECTION_CREATE, type);
+                    }
+                    lookupTier = HolderLookupStats.TIER_CREATE;
                     if (ALLOW_THREAD_GAP_WORK) {
                         // only bother finding nested RV if prefetching
                         RecyclerView innerView = findNestedRecyclerView(holder.itemView);
@@ -5537,7 +6499,15 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
                     }
                 }
             }
-            Log.d(TAG, "tryGetViewHolderForPositionByDeadline-----------------------end");
+            if (mHolderLookupStats != null) {
+                mHolderLookupStats.record(getDrawingTime(), holder.getItemViewType(), lookupTier);
+            }
+            if (dryRun) {
+                // a holder left in the cache may be rebound below, changing its position
+                invalidateCacheIndex();
+            } else if (mAdaptiveCacheMax > 0 && !mState.isPreLayout()) {
+                onHolderLookedUp(position, lookupTier);
+            }
 
             // This is very ugly but the only place we can grab this information
             // before the View is rebound and returned to the LayoutManager for post layout ops.
@@ -5665,7 +6635,6 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
             for (int i = count - 1; i >= 0; i--) {
                 recycleCachedViewAt(i);
             }
-            mCachedViews.clear();
             if (ALLOW_THREAD_GAP_WORK) {
                 mPrefetchRegistry.clearPrefetchPositions();
             }
@@ -5690,8 +6659,9 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
             if (DEBUG) {
                 Log.d(TAG, "CachedViewHolder to be recycled: " + viewHolder);
             }
+            // pooling resets the holder, the cache index needs its position and id first
+            removeCachedViewAt(cachedViewIndex);
             addViewHolderToRecycledViewPool(viewHolder, true);
-            mCachedViews.remove(cachedViewIndex);
         }
 
         /**
@@ -5737,6 +6707,12 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
                     // Retire oldest cached view
                     int cachedViewSize = mCachedViews.size();
                     if (cachedViewSize >= mViewCacheMax && cachedViewSize > 0) {
+                        if (mAdaptiveCacheMax > 0) {
+                            mEvictedPositions[mEvictedPositionsNext] =
+                                    mCachedViews.get(0).getLayoutPosition();
+                            mEvictedPositionsNext =
+                                    (mEvictedPositionsNext + 1) % EVICTED_POSITION_HISTORY;
+                        }
                         recycleCachedViewAt(0);
                         cachedViewSize--;
                     }
@@ -5756,7 +6732,7 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
                         }
                         targetCacheIndex = cacheIndex + 1;
                     }
-                    mCachedViews.add(targetCacheIndex, holder);
+                    addCachedView(targetCacheIndex, holder);
                     cached = true;
                 }
                 if (!cached) {
@@ -5922,7 +6898,7 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
                 if (!holder.wasReturnedFromScrap() && holder.getLayoutPosition() == position
                         && !holder.isInvalid() && (mState.mInPreLayout || !holder.isRemoved())) {
                     holder.addFlags(ViewHolder.FLAG_RETURNED_FROM_SCRAP);
-                    Log.d(TAG, "getScrapOrHiddenOrCachedHolderForPosition-1");
+                    mLastLookupTier = HolderLookupStats.TIER_ATTACHED_SCRAP;
                     return holder;
                 }
             }
@@ -5943,27 +6919,24 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
                     scrapView(view);
                     vh.addFlags(ViewHolder.FLAG_RETURNED_FROM_SCRAP
                             | ViewHolder.FLAG_BOUNCED_FROM_HIDDEN_LIST);
-                    Log.d(TAG, "getScrapOrHiddenOrCachedHolderForPosition-2");
+                    mLastLookupTier = HolderLookupStats.TIER_HIDDEN;
                     return vh;
                 }
             }
 
             // Search in our first-level recycled view cache.滚动的时候执行
-            final int cacheSize = mCachedViews.size();
-            for (int i = 0; i < cacheSize; i++) {
-                final ViewHolder holder = mCachedViews.get(i);
-                // invalid view holders may be in cache if adapter has stable ids as they can be
-                // retrieved via getScrapOrCachedViewForId
-                if (!holder.isInvalid() && holder.getLayoutPosition() == position) {
-                    if (!dryRun) {
-                        mCachedViews.remove(i);
-                    }
-                    if (DEBUG) {
-                        Log.d(TAG, "getScrapOrHiddenOrCachedHolderForPosition(" + position
-                                + ") found match in cache: " + holder);
-                    }
-                    return holder;
+            final int cacheIndex = findCachedViewIndexForPosition(position);
+            if (cacheIndex >= 0) {
+                final ViewHolder holder = mCachedViews.get(cacheIndex);
+                if (!dryRun) {
+                    removeCachedViewAt(cacheIndex);
+                }
+                if (DEBUG) {
+                    Log.d(TAG, "getScrapOrHiddenOrCachedHolderForPosition(" + position
+                            + ") found match in cache: " + holder);
                 }
+                mLastLookupTier = HolderLookupStats.TIER_CACHE;
+                return holder;
             }
             return null;
         }
@@ -6003,13 +6976,32 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
             }
 
             // Search the first-level cache
+            if (ensureCacheIndex()) {
+                final ViewHolder holder = mCachedIdIndex.get(id);
+                if (holder == null) {
+                    return null;
+                }
+                if (isCachedAtSlot(holder) && holder.getItemId() == id) {
+                    if (type == holder.getItemViewType()) {
+                        if (!dryRun) {
+                            removeCachedViewAt(holder.mCacheSlot);
+                        }
+                        return holder;
+                    } else if (!dryRun) {
+                        recycleCachedViewAt(holder.mCacheSlot);
+                    }
+                    return null;
+                }
+                // a key changed without the index being invalidated, scan instead
+                invalidateCacheIndex();
+            }
             final int cacheSize = mCachedViews.size();
             for (int i = cacheSize - 1; i >= 0; i--) {
                 final ViewHolder holder = mCachedViews.get(i);
                 if (holder.getItemId() == id) {
                     if (type == holder.getItemViewType()) {
                         if (!dryRun) {
-                            mCachedViews.remove(i);
+                            removeCachedViewAt(i);
                         }
                         return holder;
                     } else if (!dryRun) {
@@ -6051,6 +7043,7 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
                 end = from;
                 inBetweenOffset = 1;
             }
+            invalidateCacheIndex();
             final int cachedCount = mCachedViews.size();
             for (int i = 0; i < cachedCount; i++) {
                 final ViewHolder holder = mCachedViews.get(i);
@@ -6070,6 +7063,7 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
         }
 
         void offsetPositionRecordsForInsert(int insertedAt, int count) {
+            invalidateCacheIndex();
             final int cachedCount = mCachedViews.size();
             for (int i = 0; i < cachedCount; i++) {
                 final ViewHolder holder = mCachedViews.get(i);
@@ -6091,6 +7085,7 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
          */
         void offsetPositionRecordsForRemove(int removedFrom, int count, boolean applyToPreLayout) {
             final int removedEnd = removedFrom + count;
+            invalidateCacheIndex();
             final int cachedCount = mCachedViews.size();
             for (int i = cachedCount - 1; i >= 0; i--) {
                 final ViewHolder holder = mCachedViews.get(i);
@@ -6162,6 +7157,7 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
         }
 
         void markKnownViewsInvalid() {
+            invalidateCacheIndex();
             if (mAdapter != null && mAdapter.hasStableIds()) {
                 final int cachedCount = mCachedViews.size();
                 for (int i = 0; i < cachedCount; i++) {
@@ -6178,6 +7174,7 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
         }
 
         void clearOldPositions() {
+            invalidateCacheIndex();
             final int cachedCount = mCachedViews.size();
             for (int i = 0; i < cachedCount; i++) {
                 final ViewHolder holder = mCachedViews.get(i);
@@ -6350,6 +7347,14 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
          * @see #onBindViewHolder(ViewHolder, int)
          */
         public final void bindViewHolder(VH holder, int position) {
+            bindViewHolder(holder, position, null);
+        }
+
+        /**
+         * Same as {@link #bindViewHolder(ViewHolder, int)}, but applies a model returned by
+         * {@link #prepareBind(int)} instead of running a full bind when one is given.
+         */
+        final void bindViewHolder(VH holder, int position, Object preparedBind) {
             holder.mPosition = position;
             if (hasStableIds()) {
                 holder.mItemId = getItemId(position);
@@ -6358,7 +7363,11 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
                     ViewHolder.FLAG_BOUND | ViewHolder.FLAG_UPDATE | ViewHolder.FLAG_INVALID
                             | ViewHolder.FLAG_ADAPTER_POSITION_UNKNOWN);
             TraceCompat.beginSection(TRACE_BIND_VIEW_TAG);
-            onBindViewHolder(holder, position, holder.getUnmodifiedPayloads());
+            if (preparedBind != null) {
+                onBindPreparedViewHolder(holder, position, preparedBind);
+            } else {
+                onBindViewHolder(holder, position, holder.getUnmodifiedPayloads());
+            }
             holder.clearPayload();
             final ViewGroup.LayoutParams layoutParams = holder.itemView.getLayoutParams();
             if (layoutParams instanceof RecyclerView.LayoutParams) {
@@ -6383,6 +7392,107 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
             return 0;
         }
 
+        /**
+         * Return true if {@link #onCreateViewHolder(ViewGroup, int)} can be called on a background
+         * thread for the given view type.
+         * <p>
+         * When prefetch can't create a ViewHolder within the idle time between frames,
+         * RecyclerView may instead create holders of such types on a worker thread and put them
+         * into the {@link RecycledViewPool} ahead of time. Creation must then only build the
+         * ViewHolder and its View hierarchy, and must not touch the parent or any other View that
+         * is already attached. Binding always happens on the UI thread.
+         * <p>
+         * The default implementation returns false.
+         *
+         * @param viewType The view type of the ViewHolder to be created.
+         * @return True if ViewHolders of this type can be created off the UI thread.
+         * @see #getItemViewType(int)
+         */
+        public boolean isViewTypeCreationThreadSafe(int viewType) {
+            return false;
+        }
+
+        /**
+         * Return true if {@link #prepareBind(int)} should be called for items of the given view
+         * type.
+         * <p>
+         * The default implementation returns false.
+         *
+         * @param viewType The view type of the items.
+         * @return True if binding items of this type can be split into a background preparation
+         * and a UI thread application.
+         * @see #prepareBind(int)
+         */
+        public boolean canPrepareBind(int viewType) {
+            return false;
+        }
+
+        /**
+         * Return true if all items of the given view type are laid out the same way, whatever
+         * data they are bound to: the item view always measures to the same size for the same
+         * measure specs, and binding never changes the size or position of any View inside it.
+         * This is usually the case for rows built from fixed size Views.
+         * <p>
+         * When this returns true, the LayoutManager skips measuring an item view of this type
+         * again after it is rebound, as long as the specs it would be measured with are the same
+         * as the last time, for instance while flinging through a long uniform list. The item is
+         * still measured the first time and whenever the available width or its decoration
+         * insets change. Views inside the item keep the size and position they had, so an item
+         * with Views that must be re-measured to show their new content, such as a
+         * <code>WRAP_CONTENT</code> TextView, doesn't qualify.
+         * <p>
+         * The default implementation returns false.
+         *
+         * @param viewType The view type of the items.
+         * @return True if items of this type have a size and inner layout that don't depend on
+         * their data.
+         */
+        public boolean hasFixedItemSize(int viewType) {
+            return false;
+        }
+
+        /**
+         * Called by RecyclerView on a background thread to do the part of binding the item at the
+         * given position that doesn't touch any View, such as text layout, building spans or
+         * formatting dates, ahead of the item being scrolled into view.
+         * <p>
+         * This method must be thread safe: it may run while the UI thread works with the adapter,
+         * so it should only read data that isn't modified in place, and it must return an
+         * immutable model. Prepared models are dropped whenever the adapter notifies a change.
+         * <p>
+         * If a model is ready when the item is fully bound, RecyclerView calls
+         * {@link #onBindPreparedViewHolder(ViewHolder, int, Object)} with it instead of
+         * {@link #onBindViewHolder(ViewHolder, int, List)}. Partial binds with payloads never use
+         * a prepared model.
+         * <p>
+         * Only called for view types for which {@link #canPrepareBind(int)} returns true. The
+         * default implementation returns null, which means nothing was prepared.
+         *
+         * @param position The position of the item within the adapter's data set.
+         * @return The bind model of the item, or null to bind it the regular way.
+         */
+        @Nullable
+        public Object prepareBind(int position) {
+            return null;
+        }
+
+        /**
+         * Called by RecyclerView on the UI thread to apply a model returned by
+         * {@link #prepareBind(int)} to the given ViewHolder. This replaces a full bind, so it has
+         * to update the whole {@link ViewHolder#itemView}.
+         * <p>
+         * The default implementation ignores the model and calls
+         * {@link #onBindViewHolder(ViewHolder, int)}.
+         *
+         * @param holder       The ViewHolder which should be updated to represent the item.
+         * @param position     The position of the item within the adapter's data set.
+         * @param preparedBind The model returned by {@link #prepareBind(int)} for this position.
+         */
+        public void onBindPreparedViewHolder(VH holder, int position,
+                @NonNull Object preparedBind) {
+            onBindViewHolder(holder, position);
+        }
+
         /**
          * Indicates whether each item in the data set can be represented with a unique identifier
          * of type {@link java.lang.Long}.
@@ -7688,6 +8798,12 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
 
         private void addViewInt(View child, int index, boolean disappearing) {
             final ViewHolder holder = getChildViewHolderInt(child);
+            if (holder.hasAnyOfTheFlags(ViewHolder.FLAG_PREFETCHED)) {
+                holder.setFlags(0, ViewHolder.FLAG_PREFETCHED);
+                if (mRecyclerView.mFrameWorkStats != null) {
+                    mRecyclerView.mFrameWorkStats.recordPrefetchHit();
+                }
+            }
             if (disappearing || holder.isRemoved()) {
                 // these views will be hidden at the end of the layout pass.
                 mRecyclerView.mViewInfoStore.addToDisappearedInLayout(holder);
@@ -8390,9 +9506,13 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
          * Use this method if the View is already measured once in this layout pass.
          */
         boolean shouldReMeasureChild(View child, int widthSpec, int heightSpec, LayoutParams lp) {
-            return !mMeasurementCacheEnabled
+            final boolean measure = !mMeasurementCacheEnabled
                     || !isMeasurementUpToDate(child.getMeasuredWidth(), widthSpec, lp.width)
                     || !isMeasurementUpToDate(child.getMeasuredHeight(), heightSpec, lp.height);
+            if (measure) {
+                onChildMeasureSpecs(lp, widthSpec, heightSpec);
+            }
+            return measure;
         }
 
         // we may consider making this public
@@ -8405,10 +9525,53 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
          * measure this View or not.
          */
         boolean shouldMeasureChild(View child, int widthSpec, int heightSpec, LayoutParams lp) {
-            return child.isLayoutRequested()
+            if (isFixedSizeMeasurementUpToDate(child, widthSpec, heightSpec, lp)) {
+                return false;
+            }
+            final boolean measure = child.isLayoutRequested()
                     || !mMeasurementCacheEnabled
                     || !isMeasurementUpToDate(child.getWidth(), widthSpec, lp.width)
                     || !isMeasurementUpToDate(child.getHeight(), heightSpec, lp.height);
+            if (measure) {
+                onChildMeasureSpecs(lp, widthSpec, heightSpec);
+            }
+            return measure;
+        }
+
+        /**
+         * Remembers the specs a child is about to be measured with, callers of
+         * {@link #shouldMeasureChild(View, int, int, LayoutParams)} and
+         * {@link #shouldReMeasureChild(View, int, int, LayoutParams)} measure the child with the
+         * specs they checked when these return true.
+         */
+        private static void onChildMeasureSpecs(LayoutParams lp, int widthSpec, int heightSpec) {
+            lp.mHasMeasureSpecs = true;
+            lp.mWidthMeasureSpec = widthSpec;
+            lp.mHeightMeasureSpec = heightSpec;
+        }
+
+        /**
+         * Returns true if the child's view type has a fixed size and the child was last measured
+         * with the same specs and laid out at the size it measured to. Such a child doesn't need
+         * to be measured again, even if rebinding requested a layout.
+         *
+         * @see Adapter#hasFixedItemSize(int)
+         */
+        private boolean isFixedSizeMeasurementUpToDate(View child, int widthSpec, int heightSpec,
+                LayoutParams lp) {
+            if (!mMeasurementCacheEnabled || !lp.mHasMeasureSpecs
+                    || lp.mWidthMeasureSpec != widthSpec || lp.mHeightMeasureSpec != heightSpec) {
+                return false;
+            }
+            final Adapter adapter = mRecyclerView.mAdapter;
+            if (adapter == null || lp.mViewHolder == null
+                    || !adapter.hasFixedItemSize(lp.mViewHolder.getItemViewType())) {
+                return false;
+            }
+            final int width = child.getWidth();
+            final int height = child.getHeight();
+            return width > 0 && height > 0
+                    && child.getMeasuredWidth() == width && child.getMeasuredHeight() == height;
         }
 
         /**
@@ -9624,6 +10787,17 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
             return false;
         }
 
+        /**
+         * Internal API to let LayoutManagers that know the sizes of all items support
+         * {@link RecyclerView#scrollTo(int, int)}.
+         *
+         * @return true if a scroll was requested, false if the LayoutManager can't scroll to an
+         * absolute offset.
+         */
+        boolean scrollToAbsoluteOffset(int x, int y) {
+            return false;
+        }
+
         boolean hasFlexibleChildInBothOrientations() {
             final int childCount = getChildCount();
             for (int i = 0; i < childCount; i++) {
@@ -9912,6 +11086,19 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
     public static abstract class ViewHolder {
         public final View itemView;
         WeakReference<RecyclerView> mNestedRecyclerView;
+        /**
+         * {@link SystemClock#uptimeMillis()} when this holder was put into a RecycledViewPool.
+         */
+        long mPooledTimeMs;
+        /**
+         * Index of this holder in {@link Recycler#mCachedViews}, or -1 if it isn't cached.
+         */
+        int mCacheSlot = -1;
+        /**
+         * Index of this holder's record in the {@link ViewInfoStore}, only meaningful while the
+         * store's slot at that index points back to this holder.
+         */
+        int mInfoSlot = ViewInfoStore.NO_SLOT;
         int mPosition = NO_POSITION;
         int mOldPosition = NO_POSITION;
         long mItemId = NO_ID;
@@ -10016,6 +11203,12 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
          */
         static final int FLAG_BOUNCED_FROM_HIDDEN_LIST = 1 << 13;
 
+        /**
+         * Set when GapWorker puts the ViewHolder into the view cache, cleared when the
+         * LayoutManager adds it, which counts as a prefetch hit.
+         */
+        static final int FLAG_PREFETCHED = 1 << 14;
+
         private int mFlags;
 
         private static final List<Object> FULLUPDATE_PAYLOADS = Collections.EMPTY_LIST;
@@ -10514,6 +11707,11 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
         // In this case, we need to manually call invalidate after view is added to guarantee that
         // invalidation is populated through the View hierarchy
         boolean mPendingInvalidate = false;
+        // The specs the view was last measured with by the LayoutManager, see
+        // Adapter#hasFixedItemSize
+        boolean mHasMeasureSpecs = false;
+        int mWidthMeasureSpec;
+        int mHeightMeasureSpec;
 
         public LayoutParams(Context c, AttributeSet attrs) {
             super(c, attrs);
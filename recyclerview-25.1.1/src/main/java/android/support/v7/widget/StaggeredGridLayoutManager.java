@@ -106,6 +106,12 @@ public class StaggeredGridLayoutManager extends RecyclerView.LayoutManager imple
      */
     private static final float MAX_SCROLL_FACTOR = 1 / 3f;
 
+    /**
+     * Number of positions on each side of the anchor whose spans are kept in the saved state.
+     * Spans of the other positions are assigned again when they are laid out after a restore.
+     */
+    private static final int SAVED_SPAN_LOOKUP_RADIUS = 1000;
+
     /**
      * Number of spans
      */
@@ -213,11 +219,13 @@ public class StaggeredGridLayoutManager extends RecyclerView.LayoutManager imple
     private boolean mSmoothScrollbarEnabled = true;
 
     /**
-     * Temporary array used (solely in {@link #collectAdjacentPrefetchPositions}) for stashing and
-     * sorting distances to views being prefetched.
+     * Temporary array used (solely in {@link #collectAdjacentPrefetchPositions}) for stashing the
+     * distance of each span to the viewport.
      */
     private int[] mPrefetchDistances;
 
+    private static final int SPAN_PREFETCHED = -1;
+
     private final Runnable mCheckForGapsRunnable = new Runnable() {
         @Override
         public void run() {
@@ -814,7 +822,8 @@ public class StaggeredGridLayoutManager extends RecyclerView.LayoutManager imple
             anchorInfo.mLayoutFromEnd = mShouldReverseLayout;
         }
         if (mPendingSavedState.mSpanLookupSize > 1) {
-            mLazySpanLookup.mData = mPendingSavedState.mSpanLookup;
+            mLazySpanLookup.setData(mPendingSavedState.mSpanLookupStart,
+                    mPendingSavedState.mSpanLookup);
             mLazySpanLookup.mFullSpanItems = mPendingSavedState.mFullSpanItems;
         }
     }
@@ -1200,14 +1209,6 @@ public class StaggeredGridLayoutManager extends RecyclerView.LayoutManager imple
         state.mAnchorLayoutFromEnd = mLastLayoutFromEnd;
         state.mLastLayoutRTL = mLastLayoutRTL;
 
-        if (mLazySpanLookup != null && mLazySpanLookup.mData != null) {
-            state.mSpanLookup = mLazySpanLookup.mData;
-            state.mSpanLookupSize = state.mSpanLookup.length;
-            state.mFullSpanItems = mLazySpanLookup.mFullSpanItems;
-        } else {
-            state.mSpanLookupSize = 0;
-        }
-
         if (getChildCount() > 0) {
             state.mAnchorPosition = mLastLayoutFromEnd ? getLastChildPosition()
                     : getFirstChildPosition();
@@ -1234,6 +1235,23 @@ public class StaggeredGridLayoutManager extends RecyclerView.LayoutManager imple
             state.mVisibleAnchorPosition = NO_POSITION;
             state.mSpanOffsetsSize = 0;
         }
+
+        // only keep the spans around the anchor, so the state stays small however far the user
+        // scrolled
+        final int anchorPosition = Math.max(0, state.mAnchorPosition);
+        final int spanLookupStart = Math.max(0, anchorPosition - SAVED_SPAN_LOOKUP_RADIUS);
+        final int spanLookupEnd = anchorPosition + SAVED_SPAN_LOOKUP_RADIUS + 1;
+        final int[] spanLookup = mLazySpanLookup != null
+                ? mLazySpanLookup.toArray(spanLookupStart, spanLookupEnd) : null;
+        if (spanLookup != null) {
+            state.mSpanLookupStart = spanLookupStart;
+            state.mSpanLookup = spanLookup;
+            state.mSpanLookupSize = state.mSpanLookup.length;
+            state.mFullSpanItems = mLazySpanLookup.getFullSpanItems(spanLookupStart,
+                    spanLookupEnd);
+        } else {
+            state.mSpanLookupSize = 0;
+        }
         if (DEBUG) {
             Log.d(TAG, "saved state:\n" + state);
         }
@@ -2071,16 +2089,51 @@ public class StaggeredGridLayoutManager extends RecyclerView.LayoutManager imple
         requestLayout();
     }
 
+    /** @hide */
+    @Override
+    public void collectInitialPrefetchPositions(int adapterItemCount,
+            LayoutPrefetchRegistry layoutPrefetchRegistry) {
+        final boolean fromEnd;
+        final int anchorPos;
+        if (mPendingSavedState != null && mPendingSavedState.mAnchorPosition != NO_POSITION) {
+            // use restored state, since it hasn't been resolved yet
+            fromEnd = mPendingSavedState.mAnchorLayoutFromEnd;
+            anchorPos = mPendingSavedState.mAnchorPosition;
+        } else {
+            resolveShouldLayoutReverse();
+            fromEnd = mShouldReverseLayout;
+            if (mPendingScrollPosition == NO_POSITION) {
+                anchorPos = fromEnd ? adapterItemCount - 1 : 0;
+            } else {
+                anchorPos = mPendingScrollPosition;
+            }
+        }
+
+        // the first item of each span
+        final int direction = fromEnd ? ITEM_DIRECTION_HEAD : ITEM_DIRECTION_TAIL;
+        int targetPos = anchorPos;
+        for (int i = 0; i < mSpanCount; i++) {
+            if (targetPos >= 0 && targetPos < adapterItemCount) {
+                layoutPrefetchRegistry.addPosition(targetPos, 0);
+            } else {
+                break; // no more to prefetch
+            }
+            targetPos += direction;
+        }
+    }
+
     /** @hide */
     @Override
     public void collectAdjacentPrefetchPositions(int dx, int dy, RecyclerView.State state,
             LayoutPrefetchRegistry layoutPrefetchRegistry) {
-        /* This method uses the simplifying assumption that the next N items (where N = span count)
-         * will be assigned, one-to-one, to spans, where ordering is based on which span  extends
-         * least beyond the viewport.
+        /* This method prefetches the next item of each span, at the distance by which that span
+         * extends beyond the viewport.
          *
-         * While this simplified model will be incorrect in some cases, it's difficult to know
-         * item heights, or whether individual items will be full span prior to construction.
+         * Items that were laid out before keep their span, so they are placed in it. Other items
+         * are assigned, one-to-one, to the remaining spans, the one extending least beyond the
+         * viewport first, which is also how fill() picks spans. This is incorrect in some cases,
+         * since it's difficult to know item heights, or whether individual items will be full
+         * span, prior to construction.
          *
          * While this greedy estimation approach may underestimate the distance to prefetch items,
          * it's very unlikely to overestimate them, so distances can be conservatively used to know
@@ -2093,32 +2146,61 @@ public class StaggeredGridLayoutManager extends RecyclerView.LayoutManager imple
         }
         prepareLayoutStateForDelta(delta, state);
 
-        // build sorted list of distances to end of each span (though we don't care which is which)
+        // number of pixels past the edge of the viewport that each span extends, or
+        // SPAN_PREFETCHED once the span got its item
         if (mPrefetchDistances == null || mPrefetchDistances.length < mSpanCount) {
             mPrefetchDistances = new int[mSpanCount];
         }
-
-        int itemPrefetchCount = 0;
+        int maxDistance = 0;
         for (int i = 0; i < mSpanCount; i++) {
-            // compute number of pixels past the edge of the viewport that the current span extends
-            int distance = mLayoutState.mItemDirection == LAYOUT_START
+            final int distance = mLayoutState.mLayoutDirection == LAYOUT_START
                     ? mLayoutState.mStartLine - mSpans[i].getStartLine(mLayoutState.mStartLine)
                     : mSpans[i].getEndLine(mLayoutState.mEndLine) - mLayoutState.mEndLine;
-            if (distance >= 0) {
-                // span extends to the edge, so prefetch next item
-                mPrefetchDistances[itemPrefetchCount] = distance;
-                itemPrefetchCount++;
-            }
+            // a span that doesn't reach the edge gets its next item right away
+            mPrefetchDistances[i] = Math.max(0, distance);
+            maxDistance = Math.max(maxDistance, mPrefetchDistances[i]);
         }
-        Arrays.sort(mPrefetchDistances, 0, itemPrefetchCount);
 
-        // then assign them in order to the next N views (where N = span count)
-        for (int i = 0; i < itemPrefetchCount && mLayoutState.hasMore(state); i++) {
-            layoutPrefetchRegistry.addPosition(mLayoutState.mCurrentPosition, mPrefetchDistances[i]);
+        for (int i = 0; i < mSpanCount && mLayoutState.hasMore(state); i++) {
+            final int position = mLayoutState.mCurrentPosition;
+            if (mLazySpanLookup.getFullSpanItem(position) != null) {
+                // starts past all spans and takes them all, nothing comes before it
+                if (i == 0) {
+                    layoutPrefetchRegistry.addPosition(position, maxDistance);
+                }
+                return;
+            }
+            int spanIndex = mLazySpanLookup.getSpan(position);
+            if (spanIndex == LayoutParams.INVALID_SPAN_ID
+                    || mPrefetchDistances[spanIndex] == SPAN_PREFETCHED) {
+                spanIndex = findClosestPrefetchSpan();
+                if (spanIndex == LayoutParams.INVALID_SPAN_ID) {
+                    return;
+                }
+            }
+            layoutPrefetchRegistry.addPosition(position, mPrefetchDistances[spanIndex]);
+            mPrefetchDistances[spanIndex] = SPAN_PREFETCHED;
             mLayoutState.mCurrentPosition += mLayoutState.mItemDirection;
         }
     }
 
+    /**
+     * Returns the index of the span extending least beyond the viewport among those that didn't
+     * get an item to prefetch yet, or {@link LayoutParams#INVALID_SPAN_ID} if all did.
+     */
+    private int findClosestPrefetchSpan() {
+        int closest = LayoutParams.INVALID_SPAN_ID;
+        for (int i = 0; i < mSpanCount; i++) {
+            final int distance = mPrefetchDistances[i];
+            if (distance != SPAN_PREFETCHED
+                    && (closest == LayoutParams.INVALID_SPAN_ID
+                    || distance < mPrefetchDistances[closest])) {
+                closest = i;
+            }
+        }
+        return closest;
+    }
+
     void prepareLayoutStateForDelta(int delta, RecyclerView.State state) {
         final int referenceChildPosition;
         final int layoutDir;
@@ -2693,13 +2775,23 @@ public class StaggeredGridLayoutManager extends RecyclerView.LayoutManager imple
     }
 
     /**
-     * An array of mappings from adapter position to span.
-     * This only grows when a write happens and it grows up to the size of the adapter.
+     * A mapping from adapter position to span.
+     * <p>
+     * Spans are kept in chunks of positions that are only allocated when a position in them is
+     * written, so memory is proportional to the parts of the adapter that were laid out rather
+     * than to the highest position. Full span items are kept sorted by position and looked up by
+     * binary search.
      */
     static class LazySpanLookup {
 
-        private static final int MIN_SIZE = 10;
-        int[] mData;
+        private static final int CHUNK_SHIFT = 10;
+        private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+        private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+        private static final int MIN_CHUNK_COUNT = 4;
+
+        // spans of CHUNK_SIZE positions each, a null chunk has no span assigned
+        int[][] mChunks;
+        // sorted by position
         List<FullSpanItem> mFullSpanItems;
 
 
@@ -2708,12 +2800,8 @@ public class StaggeredGridLayoutManager extends RecyclerView.LayoutManager imple
          */
         int forceInvalidateAfter(int position) {
             if (mFullSpanItems != null) {
-                for (int i = mFullSpanItems.size() - 1; i >= 0; i--) {
-                    FullSpanItem fsi = mFullSpanItems.get(i);
-                    if (fsi.mPosition >= position) {
-                        mFullSpanItems.remove(i);
-                    }
-                }
+                mFullSpanItems.subList(findFullSpanItemIndex(position), mFullSpanItems.size())
+                        .clear();
             }
             return invalidateAfter(position);
         }
@@ -2722,72 +2810,144 @@ public class StaggeredGridLayoutManager extends RecyclerView.LayoutManager imple
          * returns end position for invalidation.
          */
         int invalidateAfter(int position) {
-            if (mData == null) {
+            if (mChunks == null) {
                 return RecyclerView.NO_POSITION;
             }
-            if (position >= mData.length) {
+            final int capacity = mChunks.length << CHUNK_SHIFT;
+            if (position >= capacity) {
                 return RecyclerView.NO_POSITION;
             }
             int endPosition = invalidateFullSpansAfter(position);
             if (endPosition == RecyclerView.NO_POSITION) {
-                Arrays.fill(mData, position, mData.length, LayoutParams.INVALID_SPAN_ID);
-                return mData.length;
+                invalidate(position, capacity);
+                return capacity;
             } else {
                 // just invalidate items in between
-                Arrays.fill(mData, position, endPosition + 1, LayoutParams.INVALID_SPAN_ID);
+                invalidate(position, endPosition + 1);
                 return endPosition + 1;
             }
         }
 
+        /**
+         * Invalidates positions from start (inclusive) to end (exclusive), releasing the chunks
+         * that become empty.
+         */
+        private void invalidate(int start, int end) {
+            end = Math.min(end, mChunks.length << CHUNK_SHIFT);
+            while (start < end) {
+                final int chunkIndex = start >> CHUNK_SHIFT;
+                final int chunkStart = chunkIndex << CHUNK_SHIFT;
+                final int chunkEnd = Math.min(end, chunkStart + CHUNK_SIZE);
+                final int[] chunk = mChunks[chunkIndex];
+                if (chunk != null) {
+                    if (start == chunkStart && chunkEnd == chunkStart + CHUNK_SIZE) {
+                        mChunks[chunkIndex] = null;
+                    } else {
+                        Arrays.fill(chunk, start - chunkStart, chunkEnd - chunkStart,
+                                LayoutParams.INVALID_SPAN_ID);
+                    }
+                }
+                start = chunkEnd;
+            }
+        }
+
         int getSpan(int position) {
-            if (mData == null || position >= mData.length) {
+            final int chunkIndex = position >> CHUNK_SHIFT;
+            if (mChunks == null || chunkIndex >= mChunks.length || mChunks[chunkIndex] == null) {
                 return LayoutParams.INVALID_SPAN_ID;
             } else {
-                return mData[position];
+                return mChunks[chunkIndex][position & CHUNK_MASK];
             }
         }
 
         void setSpan(int position, Span span) {
-            ensureSize(position);
-            mData[position] = span.mIndex;
+            setSpan(position, span.mIndex);
         }
 
-        int sizeForPosition(int position) {
-            int len = mData.length;
-            while (len <= position) {
-                len *= 2;
+        private void setSpan(int position, int spanIndex) {
+            ensureChunk(position >> CHUNK_SHIFT)[position & CHUNK_MASK] = spanIndex;
+        }
+
+        /**
+         * Returns the chunk at the given index, allocating it with no spans assigned if needed.
+         */
+        private int[] ensureChunk(int chunkIndex) {
+            if (mChunks == null) {
+                mChunks = new int[Math.max(chunkIndex + 1, MIN_CHUNK_COUNT)][];
+            } else if (chunkIndex >= mChunks.length) {
+                mChunks = Arrays.copyOf(mChunks, Math.max(chunkIndex + 1, mChunks.length * 2));
+            }
+            int[] chunk = mChunks[chunkIndex];
+            if (chunk == null) {
+                chunk = new int[CHUNK_SIZE];
+                Arrays.fill(chunk, LayoutParams.INVALID_SPAN_ID);
+                mChunks[chunkIndex] = chunk;
             }
-            return len;
+            return chunk;
         }
 
-        void ensureSize(int position) {
-            if (mData == null) {
-                mData = new int[Math.max(position, MIN_SIZE) + 1];
-                Arrays.fill(mData, LayoutParams.INVALID_SPAN_ID);
-            } else if (position >= mData.length) {
-                int[] old = mData;
-                mData = new int[sizeForPosition(position)];
-                System.arraycopy(old, 0, mData, 0, old.length);
-                Arrays.fill(mData, old.length, mData.length, LayoutParams.INVALID_SPAN_ID);
+        /**
+         * Returns the spans of the positions from start (inclusive) to end (exclusive), up to the
+         * last one that has a span, or null if none has.
+         */
+        int[] toArray(int start, int end) {
+            int last = end - 1;
+            while (last >= start && getSpan(last) == LayoutParams.INVALID_SPAN_ID) {
+                last--;
             }
+            if (last < start) {
+                return null;
+            }
+            final int[] data = new int[last - start + 1];
+            for (int i = 0; i < data.length; i++) {
+                data[i] = getSpan(start + i);
+            }
+            return data;
         }
 
-        void clear() {
-            if (mData != null) {
-                Arrays.fill(mData, LayoutParams.INVALID_SPAN_ID);
+        /**
+         * Replaces all spans with the given ones, as returned by {@link #toArray(int, int)}.
+         */
+        void setData(int start, int[] data) {
+            mChunks = null;
+            if (data == null) {
+                return;
             }
+            for (int i = 0; i < data.length; i++) {
+                if (data[i] != LayoutParams.INVALID_SPAN_ID) {
+                    setSpan(start + i, data[i]);
+                }
+            }
+        }
+
+        /**
+         * Returns a copy of the full span items from start (inclusive) to end (exclusive), or null
+         * if there are none.
+         */
+        List<FullSpanItem> getFullSpanItems(int start, int end) {
+            if (mFullSpanItems == null) {
+                return null;
+            }
+            final int from = findFullSpanItemIndex(start);
+            final int to = findFullSpanItemIndex(end);
+            return from == to ? null : new ArrayList<>(mFullSpanItems.subList(from, to));
+        }
+
+        void clear() {
+            mChunks = null;
             mFullSpanItems = null;
         }
 
         void offsetForRemoval(int positionStart, int itemCount) {
-            if (mData == null || positionStart >= mData.length) {
+            if (mChunks == null || positionStart >= mChunks.length << CHUNK_SHIFT) {
                 return;
             }
-            ensureSize(positionStart + itemCount);
-            System.arraycopy(mData, positionStart + itemCount, mData, positionStart,
-                    mData.length - positionStart - itemCount);
-            Arrays.fill(mData, mData.length - itemCount, mData.length,
-                    LayoutParams.INVALID_SPAN_ID);
+            final int capacity = mChunks.length << CHUNK_SHIFT;
+            final int moveStart = positionStart + itemCount;
+            if (moveStart < capacity) {
+                moveSpans(moveStart, positionStart, capacity - moveStart);
+            }
+            invalidate(Math.max(positionStart, capacity - itemCount), capacity);
             offsetFullSpansForRemoval(positionStart, itemCount);
         }
 
@@ -2796,28 +2956,20 @@ public class StaggeredGridLayoutManager extends RecyclerView.LayoutManager imple
                 return;
             }
             final int end = positionStart + itemCount;
-            for (int i = mFullSpanItems.size() - 1; i >= 0; i--) {
-                FullSpanItem fsi = mFullSpanItems.get(i);
-                if (fsi.mPosition < positionStart) {
-                    continue;
-                }
-                if (fsi.mPosition < end) {
-                    mFullSpanItems.remove(i);
-                } else {
-                    fsi.mPosition -= itemCount;
-                }
+            final int start = findFullSpanItemIndex(positionStart);
+            mFullSpanItems.subList(start, findFullSpanItemIndex(end)).clear();
+            for (int i = mFullSpanItems.size() - 1; i >= start; i--) {
+                mFullSpanItems.get(i).mPosition -= itemCount;
             }
         }
 
         void offsetForAddition(int positionStart, int itemCount) {
-            if (mData == null || positionStart >= mData.length) {
+            if (mChunks == null || positionStart >= mChunks.length << CHUNK_SHIFT) {
                 return;
             }
-            ensureSize(positionStart + itemCount);
-            System.arraycopy(mData, positionStart, mData, positionStart + itemCount,
-                    mData.length - positionStart - itemCount);
-            Arrays.fill(mData, positionStart, positionStart + itemCount,
-                    LayoutParams.INVALID_SPAN_ID);
+            final int capacity = mChunks.length << CHUNK_SHIFT;
+            moveSpans(positionStart, positionStart + itemCount, capacity - positionStart);
+            invalidate(positionStart, positionStart + itemCount);
             offsetFullSpansForAddition(positionStart, itemCount);
         }
 
@@ -2828,12 +2980,90 @@ public class StaggeredGridLayoutManager extends RecyclerView.LayoutManager imple
             for (int i = mFullSpanItems.size() - 1; i >= 0; i--) {
                 FullSpanItem fsi = mFullSpanItems.get(i);
                 if (fsi.mPosition < positionStart) {
-                    continue;
+                    break;
                 }
                 fsi.mPosition += itemCount;
             }
         }
 
+        /**
+         * Copies the spans of count positions from the given position to another one, in place
+         * like {@link System#arraycopy}. Unallocated chunks count as having no span assigned, a
+         * destination chunk is only allocated when a span has to be copied into it.
+         */
+        private void moveSpans(int from, int to, int count) {
+            final boolean backwards = to > from;
+            while (count > 0) {
+                // the longest run that stays within one source and one destination chunk
+                final int src;
+                final int dst;
+                final int length;
+                if (backwards) {
+                    final int srcLast = from + count - 1;
+                    final int dstLast = to + count - 1;
+                    length = Math.min(count,
+                            Math.min((srcLast & CHUNK_MASK) + 1, (dstLast & CHUNK_MASK) + 1));
+                    src = srcLast - length + 1;
+                    dst = dstLast - length + 1;
+                } else {
+                    length = Math.min(count, Math.min(CHUNK_SIZE - (from & CHUNK_MASK),
+                            CHUNK_SIZE - (to & CHUNK_MASK)));
+                    src = from;
+                    dst = to;
+                    from += length;
+                    to += length;
+                }
+                count -= length;
+
+                final int srcChunkIndex = src >> CHUNK_SHIFT;
+                final int[] srcChunk = srcChunkIndex < mChunks.length ? mChunks[srcChunkIndex]
+                        : null;
+                final int dstChunkIndex = dst >> CHUNK_SHIFT;
+                int[] dstChunk = dstChunkIndex < mChunks.length ? mChunks[dstChunkIndex] : null;
+                if (srcChunk == null) {
+                    if (dstChunk != null) {
+                        Arrays.fill(dstChunk, dst & CHUNK_MASK, (dst & CHUNK_MASK) + length,
+                                LayoutParams.INVALID_SPAN_ID);
+                    }
+                    continue;
+                }
+                if (dstChunk == null) {
+                    if (!hasSpans(srcChunk, src & CHUNK_MASK, length)) {
+                        continue;
+                    }
+                    dstChunk = ensureChunk(dstChunkIndex);
+                }
+                System.arraycopy(srcChunk, src & CHUNK_MASK, dstChunk, dst & CHUNK_MASK, length);
+            }
+        }
+
+        private static boolean hasSpans(int[] chunk, int start, int length) {
+            for (int i = start; i < start + length; i++) {
+                if (chunk[i] != LayoutParams.INVALID_SPAN_ID) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Returns the index of the first full span item at or after the given position, or the
+         * number of full span items if there is none.
+         */
+        private int findFullSpanItemIndex(int position) {
+            int low = 0;
+            int high = mFullSpanItems.size();
+            while (low < high) {
+                final int mid = (low + high) >>> 1;
+                if (mFullSpanItems.get(mid).mPosition < position) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
         /**
          * Returns when invalidation should end. e.g. hitting a full span position.
          * Returned position SHOULD BE invalidated.
@@ -2842,23 +3072,14 @@ public class StaggeredGridLayoutManager extends RecyclerView.LayoutManager imple
             if (mFullSpanItems == null) {
                 return RecyclerView.NO_POSITION;
             }
-            final FullSpanItem item = getFullSpanItem(position);
+            final int index = findFullSpanItemIndex(position);
             // if there is an fsi at this position, get rid of it.
-            if (item != null) {
-                mFullSpanItems.remove(item);
-            }
-            int nextFsiIndex = -1;
-            final int count = mFullSpanItems.size();
-            for (int i = 0; i < count; i++) {
-                FullSpanItem fsi = mFullSpanItems.get(i);
-                if (fsi.mPosition >= position) {
-                    nextFsiIndex = i;
-                    break;
-                }
+            if (index < mFullSpanItems.size()
+                    && mFullSpanItems.get(index).mPosition == position) {
+                mFullSpanItems.remove(index);
             }
-            if (nextFsiIndex != -1) {
-                FullSpanItem fsi = mFullSpanItems.get(nextFsiIndex);
-                mFullSpanItems.remove(nextFsiIndex);
+            if (index < mFullSpanItems.size()) {
+                FullSpanItem fsi = mFullSpanItems.remove(index);
                 return fsi.mPosition;
             }
             return RecyclerView.NO_POSITION;
@@ -2868,31 +3089,26 @@ public class StaggeredGridLayoutManager extends RecyclerView.LayoutManager imple
             if (mFullSpanItems == null) {
                 mFullSpanItems = new ArrayList<>();
             }
-            final int size = mFullSpanItems.size();
-            for (int i = 0; i < size; i++) {
-                FullSpanItem other = mFullSpanItems.get(i);
-                if (other.mPosition == fullSpanItem.mPosition) {
-                    if (DEBUG) {
-                        throw new IllegalStateException("two fsis for same position");
-                    } else {
-                        mFullSpanItems.remove(i);
-                    }
-                }
-                if (other.mPosition >= fullSpanItem.mPosition) {
-                    mFullSpanItems.add(i, fullSpanItem);
+            final int index = findFullSpanItemIndex(fullSpanItem.mPosition);
+            if (index < mFullSpanItems.size()
+                    && mFullSpanItems.get(index).mPosition == fullSpanItem.mPosition) {
+                if (DEBUG) {
+                    throw new IllegalStateException("two fsis for same position");
+                } else {
+                    mFullSpanItems.set(index, fullSpanItem);
                     return;
                 }
             }
-            // if it is not added to a position.
-            mFullSpanItems.add(fullSpanItem);
+            mFullSpanItems.add(index, fullSpanItem);
         }
 
         public FullSpanItem getFullSpanItem(int position) {
             if (mFullSpanItems == null) {
                 return null;
             }
-            for (int i = mFullSpanItems.size() - 1; i >= 0; i--) {
-                final FullSpanItem fsi = mFullSpanItems.get(i);
+            final int index = findFullSpanItemIndex(position);
+            if (index < mFullSpanItems.size()) {
+                final FullSpanItem fsi = mFullSpanItems.get(index);
                 if (fsi.mPosition == position) {
                     return fsi;
                 }
@@ -2913,14 +3129,13 @@ public class StaggeredGridLayoutManager extends RecyclerView.LayoutManager imple
                 return null;
             }
             final int limit = mFullSpanItems.size();
-            for (int i = 0; i < limit; i++) {
+            for (int i = findFullSpanItemIndex(minPos); i < limit; i++) {
                 FullSpanItem fsi = mFullSpanItems.get(i);
                 if (fsi.mPosition >= maxPos) {
                     return null;
                 }
-                if (fsi.mPosition >= minPos
-                        && (gapDir == 0 || fsi.mGapDir == gapDir ||
-                        (hasUnwantedGapAfter && fsi.mHasUnwantedGapAfter))) {
+                if (gapDir == 0 || fsi.mGapDir == gapDir ||
+                        (hasUnwantedGapAfter && fsi.mHasUnwantedGapAfter)) {
                     return fsi;
                 }
             }
@@ -3012,6 +3227,8 @@ public class StaggeredGridLayoutManager extends RecyclerView.LayoutManager imple
         int mSpanOffsetsSize;
         int[] mSpanOffsets;
         int mSpanLookupSize;
+        // position of the first span in mSpanLookup
+        int mSpanLookupStart;
         int[] mSpanLookup;
         List<LazySpanLookup.FullSpanItem> mFullSpanItems;
         boolean mReverseLayout;
@@ -3032,8 +3249,17 @@ public class StaggeredGridLayoutManager extends RecyclerView.LayoutManager imple
 
             mSpanLookupSize = in.readInt();
             if (mSpanLookupSize > 0) {
+                mSpanLookupStart = in.readInt();
                 mSpanLookup = new int[mSpanLookupSize];
-                in.readIntArray(mSpanLookup);
+                if (in.readInt() == 1) {
+                    final byte[] packed = new byte[mSpanLookupSize];
+                    in.readByteArray(packed);
+                    for (int i = 0; i < mSpanLookupSize; i++) {
+                        mSpanLookup[i] = (packed[i] & 0xFF) - 1;
+                    }
+                } else {
+                    in.readIntArray(mSpanLookup);
+                }
             }
             mReverseLayout = in.readInt() == 1;
             mAnchorLayoutFromEnd = in.readInt() == 1;
@@ -3049,6 +3275,7 @@ public class StaggeredGridLayoutManager extends RecyclerView.LayoutManager imple
             mVisibleAnchorPosition = other.mVisibleAnchorPosition;
             mSpanOffsets = other.mSpanOffsets;
             mSpanLookupSize = other.mSpanLookupSize;
+            mSpanLookupStart = other.mSpanLookupStart;
             mSpanLookup = other.mSpanLookup;
             mReverseLayout = other.mReverseLayout;
             mAnchorLayoutFromEnd = other.mAnchorLayoutFromEnd;
@@ -3060,6 +3287,7 @@ public class StaggeredGridLayoutManager extends RecyclerView.LayoutManager imple
             mSpanOffsets = null;
             mSpanOffsetsSize = 0;
             mSpanLookupSize = 0;
+            mSpanLookupStart = 0;
             mSpanLookup = null;
             mFullSpanItems = null;
         }
@@ -3086,7 +3314,15 @@ public class StaggeredGridLayoutManager extends RecyclerView.LayoutManager imple
             }
             dest.writeInt(mSpanLookupSize);
             if (mSpanLookupSize > 0) {
-                dest.writeIntArray(mSpanLookup);
+                dest.writeInt(mSpanLookupStart);
+                final byte[] packed = packSpanLookup();
+                if (packed != null) {
+                    dest.writeInt(1);
+                    dest.writeByteArray(packed);
+                } else {
+                    dest.writeInt(0);
+                    dest.writeIntArray(mSpanLookup);
+                }
             }
             dest.writeInt(mReverseLayout ? 1 : 0);
             dest.writeInt(mAnchorLayoutFromEnd ? 1 : 0);
@@ -3094,6 +3330,22 @@ public class StaggeredGridLayoutManager extends RecyclerView.LayoutManager imple
             dest.writeList(mFullSpanItems);
         }
 
+        /**
+         * Packs the span of each position in a byte, the span index plus one so that
+         * {@link LayoutParams#INVALID_SPAN_ID} fits, or returns null if a span index is too large.
+         */
+        private byte[] packSpanLookup() {
+            final byte[] packed = new byte[mSpanLookupSize];
+            for (int i = 0; i < mSpanLookupSize; i++) {
+                final int span = mSpanLookup[i];
+                if (span >= 0xFF) {
+                    return null;
+                }
+                packed[i] = (byte) (span + 1);
+            }
+            return packed;
+        }
+
         public static final Parcelable.Creator<SavedState> CREATOR
                 = new Parcelable.Creator<SavedState>() {
             @Override
@@ -18,10 +18,9 @@ package android.support.v7.widget;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.annotation.VisibleForTesting;
-import android.support.v4.util.ArrayMap;
 import android.support.v4.util.LongSparseArray;
-import android.support.v4.util.Pools;
-import android.view.View;
+
+import java.util.Arrays;
 
 import static android.support.v7.widget.RecyclerView.ViewHolder;
 import static android.support.v7.widget.RecyclerView.ItemAnimator.ItemHolderInfo;
@@ -35,16 +34,43 @@ import static android.support.v7.widget.ViewInfoStore.InfoRecord.FLAG_PRE;
 import static android.support.v7.widget.ViewInfoStore.InfoRecord.FLAG_POST;
 /**
  * This class abstracts all tracking for Views to run animations.
+ * <p>
+ * Records are kept in parallel arrays indexed by slot. A ViewHolder gets a slot the first time
+ * something is recorded for it after the store is cleared, which happens when a layout pass
+ * starts, and remembers it in {@link ViewHolder#mInfoSlot}. A slot is only trusted while the
+ * store's holder at that index is the same ViewHolder, so stale slots left on recycled or
+ * foreign holders are harmless.
  */
 class ViewInfoStore {
 
     private static final boolean DEBUG = false;
 
+    static final int NO_SLOT = -1;
+
+    private static final int MIN_CAPACITY = 16;
+
+    private static final ViewHolder[] EMPTY_HOLDERS = new ViewHolder[0];
+
+    private static final ItemHolderInfo[] EMPTY_INFOS = new ItemHolderInfo[0];
+
+    private static final int[] EMPTY_FLAGS = new int[0];
+
     /**
-     * View data records for pre-layout
+     * View data records, indexed by slot. Removed records leave a null holder behind until the
+     * next {@link #clear()} or until the arrays need to grow.
      */
     @VisibleForTesting
-    final ArrayMap<ViewHolder, InfoRecord> mLayoutHolderMap = new ArrayMap<>();
+    ViewHolder[] mSlotHolders = EMPTY_HOLDERS;
+    private int[] mSlotFlags = EMPTY_FLAGS;
+    private ItemHolderInfo[] mSlotPreInfos = EMPTY_INFOS;
+    private ItemHolderInfo[] mSlotPostInfos = EMPTY_INFOS;
+
+    // slots handed out since the last clear, including removed ones
+    @VisibleForTesting
+    int mSlotCount;
+
+    // slots whose record has been removed
+    private int mRemovedSlotCount;
 
     @VisibleForTesting
     final LongSparseArray<ViewHolder> mOldChangedHolders = new LongSparseArray<>();
@@ -53,28 +79,105 @@ class ViewInfoStore {
      * Clears the state and all existing tracking data
      */
     void clear() {
-        mLayoutHolderMap.clear();
+        Arrays.fill(mSlotHolders, 0, mSlotCount, null);
+        Arrays.fill(mSlotPreInfos, 0, mSlotCount, null);
+        Arrays.fill(mSlotPostInfos, 0, mSlotCount, null);
+        mSlotCount = 0;
+        mRemovedSlotCount = 0;
         mOldChangedHolders.clear();
     }
 
+    /**
+     * Returns the slot of the given ViewHolder's record, or {@link #NO_SLOT} if there is none.
+     */
+    private int findSlot(ViewHolder holder) {
+        final int slot = holder.mInfoSlot;
+        if (slot >= 0 && slot < mSlotCount && mSlotHolders[slot] == holder) {
+            return slot;
+        }
+        return NO_SLOT;
+    }
+
+    /**
+     * Returns the slot of the given ViewHolder's record, creating an empty record if there is
+     * none.
+     */
+    private int obtainSlot(ViewHolder holder) {
+        int slot = findSlot(holder);
+        if (slot != NO_SLOT) {
+            return slot;
+        }
+        if (mSlotCount == mSlotHolders.length) {
+            if (mRemovedSlotCount > mSlotCount / 2) {
+                compactSlots();
+            } else {
+                growSlots();
+            }
+        }
+        slot = mSlotCount++;
+        mSlotHolders[slot] = holder;
+        mSlotFlags[slot] = 0;
+        holder.mInfoSlot = slot;
+        return slot;
+    }
+
+    private void removeSlot(int slot) {
+        mSlotHolders[slot] = null;
+        mSlotFlags[slot] = 0;
+        mSlotPreInfos[slot] = null;
+        mSlotPostInfos[slot] = null;
+        mRemovedSlotCount++;
+    }
+
+    private void growSlots() {
+        final int capacity = Math.max(MIN_CAPACITY, mSlotHolders.length * 2);
+        mSlotHolders = Arrays.copyOf(mSlotHolders, capacity);
+        mSlotFlags = Arrays.copyOf(mSlotFlags, capacity);
+        mSlotPreInfos = Arrays.copyOf(mSlotPreInfos, capacity);
+        mSlotPostInfos = Arrays.copyOf(mSlotPostInfos, capacity);
+    }
+
+    /**
+     * Moves the remaining records to the front, keeping their order, and updates the slots of
+     * their ViewHolders.
+     */
+    private void compactSlots() {
+        int count = 0;
+        for (int slot = 0; slot < mSlotCount; slot++) {
+            final ViewHolder holder = mSlotHolders[slot];
+            if (holder == null) {
+                continue;
+            }
+            if (count != slot) {
+                mSlotHolders[count] = holder;
+                mSlotFlags[count] = mSlotFlags[slot];
+                mSlotPreInfos[count] = mSlotPreInfos[slot];
+                mSlotPostInfos[count] = mSlotPostInfos[slot];
+                holder.mInfoSlot = count;
+            }
+            count++;
+        }
+        Arrays.fill(mSlotHolders, count, mSlotCount, null);
+        Arrays.fill(mSlotPreInfos, count, mSlotCount, null);
+        Arrays.fill(mSlotPostInfos, count, mSlotCount, null);
+        mSlotCount = count;
+        mRemovedSlotCount = 0;
+    }
+
     /**
      * Adds the item information to the prelayout tracking
      * @param holder The ViewHolder whose information is being saved
      * @param info The information to save
      */
     void addToPreLayout(ViewHolder holder, ItemHolderInfo info) {
-        InfoRecord record = mLayoutHolderMap.get(holder);
-        if (record == null) {
-            record = InfoRecord.obtain();
-            mLayoutHolderMap.put(holder, record);
-        }
-        record.preInfo = info;
-        record.flags |= FLAG_PRE;
+        final int slot = obtainSlot(holder);
+        mSlotPreInfos[slot] = info;
+        mSlotFlags[slot] |= FLAG_PRE;
     }
 
     boolean isDisappearing(ViewHolder holder) {
-        final InfoRecord record = mLayoutHolderMap.get(holder);
-        return record != null && ((record.flags & FLAG_DISAPPEARED) != 0);
+        final int slot = findSlot(holder);
+        return slot != NO_SLOT && ((mSlotFlags[slot] & FLAG_DISAPPEARED) != 0);
     }
 
     /**
@@ -100,25 +203,23 @@ class ViewInfoStore {
     }
 
     private ItemHolderInfo popFromLayoutStep(ViewHolder vh, int flag) {
-        int index = mLayoutHolderMap.indexOfKey(vh);
-        if (index < 0) {
+        final int slot = findSlot(vh);
+        if (slot == NO_SLOT) {
             return null;
         }
-        final InfoRecord record = mLayoutHolderMap.valueAt(index);
-        if (record != null && (record.flags & flag) != 0) {
-            record.flags &= ~flag;
+        if ((mSlotFlags[slot] & flag) != 0) {
+            mSlotFlags[slot] &= ~flag;
             final ItemHolderInfo info;
             if (flag == FLAG_PRE) {
-                info = record.preInfo;
+                info = mSlotPreInfos[slot];
             } else if (flag == FLAG_POST) {
-                info = record.postInfo;
+                info = mSlotPostInfos[slot];
             } else {
                 throw new IllegalArgumentException("Must provide flag PRE or POST");
             }
             // if not pre-post flag is left, clear.
-            if ((record.flags & (FLAG_PRE | FLAG_POST)) == 0) {
-                mLayoutHolderMap.removeAt(index);
-                InfoRecord.recycle(record);
+            if ((mSlotFlags[slot] & (FLAG_PRE | FLAG_POST)) == 0) {
+                removeSlot(slot);
             }
             return info;
         }
@@ -144,13 +245,9 @@ class ViewInfoStore {
      * @param info The information to save
      */
     void addToAppearedInPreLayoutHolders(ViewHolder holder, ItemHolderInfo info) {
-        InfoRecord record = mLayoutHolderMap.get(holder);
-        if (record == null) {
-            record = InfoRecord.obtain();
-            mLayoutHolderMap.put(holder, record);
-        }
-        record.flags |= FLAG_APPEAR;
-        record.preInfo = info;
+        final int slot = obtainSlot(holder);
+        mSlotFlags[slot] |= FLAG_APPEAR;
+        mSlotPreInfos[slot] = info;
     }
 
     /**
@@ -160,8 +257,8 @@ class ViewInfoStore {
      * @return True if the ViewHolder is present in preLayout, false otherwise
      */
     boolean isInPreLayout(ViewHolder viewHolder) {
-        final InfoRecord record = mLayoutHolderMap.get(viewHolder);
-        return record != null && (record.flags & FLAG_PRE) != 0;
+        final int slot = findSlot(viewHolder);
+        return slot != NO_SLOT && (mSlotFlags[slot] & FLAG_PRE) != 0;
     }
 
     /**
@@ -181,13 +278,9 @@ class ViewInfoStore {
      * @param info The information to save
      */
     void addToPostLayout(ViewHolder holder, ItemHolderInfo info) {
-        InfoRecord record = mLayoutHolderMap.get(holder);
-        if (record == null) {
-            record = InfoRecord.obtain();
-            mLayoutHolderMap.put(holder, record);
-        }
-        record.postInfo = info;
-        record.flags |= FLAG_POST;
+        final int slot = obtainSlot(holder);
+        mSlotPostInfos[slot] = info;
+        mSlotFlags[slot] |= FLAG_POST;
     }
 
     /**
@@ -197,12 +290,8 @@ class ViewInfoStore {
      * @param holder The ViewHolder which disappeared during a layout.
      */
     void addToDisappearedInLayout(ViewHolder holder) {
-        InfoRecord record = mLayoutHolderMap.get(holder);
-        if (record == null) {
-            record = InfoRecord.obtain();
-            mLayoutHolderMap.put(holder, record);
-        }
-        record.flags |= FLAG_DISAPPEARED;
+        final int slot = obtainSlot(holder);
+        mSlotFlags[slot] |= FLAG_DISAPPEARED;
     }
 
     /**
@@ -210,47 +299,53 @@ class ViewInfoStore {
      * @param holder The ViewHolder to be removed from the disappearing list.
      */
     void removeFromDisappearedInLayout(ViewHolder holder) {
-        InfoRecord record = mLayoutHolderMap.get(holder);
-        if (record == null) {
+        final int slot = findSlot(holder);
+        if (slot == NO_SLOT) {
             return;
         }
-        record.flags &= ~FLAG_DISAPPEARED;
+        mSlotFlags[slot] &= ~FLAG_DISAPPEARED;
     }
 
     void process(ProcessCallback callback) {
-        for (int index = mLayoutHolderMap.size() - 1; index >= 0; index --) {
-            final ViewHolder viewHolder = mLayoutHolderMap.keyAt(index);
-            final InfoRecord record = mLayoutHolderMap.removeAt(index);
-            if ((record.flags & FLAG_APPEAR_AND_DISAPPEAR) == FLAG_APPEAR_AND_DISAPPEAR) {
+        for (int slot = mSlotCount - 1; slot >= 0; slot--) {
+            final ViewHolder viewHolder = mSlotHolders[slot];
+            if (viewHolder == null) {
+                // removed
+                continue;
+            }
+            final int flags = mSlotFlags[slot];
+            final ItemHolderInfo preInfo = mSlotPreInfos[slot];
+            final ItemHolderInfo postInfo = mSlotPostInfos[slot];
+            removeSlot(slot);
+            if ((flags & FLAG_APPEAR_AND_DISAPPEAR) == FLAG_APPEAR_AND_DISAPPEAR) {
                 // Appeared then disappeared. Not useful for animations.
                 callback.unused(viewHolder);
-            } else if ((record.flags & FLAG_DISAPPEARED) != 0) {
+            } else if ((flags & FLAG_DISAPPEARED) != 0) {
                 // Set as "disappeared" by the LayoutManager (addDisappearingView)
-                if (record.preInfo == null) {
+                if (preInfo == null) {
                     // similar to appear disappear but happened between different layout passes.
                     // this can happen when the layout manager is using auto-measure
                     callback.unused(viewHolder);
                 } else {
-                    callback.processDisappeared(viewHolder, record.preInfo, record.postInfo);
+                    callback.processDisappeared(viewHolder, preInfo, postInfo);
                 }
-            } else if ((record.flags & FLAG_APPEAR_PRE_AND_POST) == FLAG_APPEAR_PRE_AND_POST) {
+            } else if ((flags & FLAG_APPEAR_PRE_AND_POST) == FLAG_APPEAR_PRE_AND_POST) {
                 // Appeared in the layout but not in the adapter (e.g. entered the viewport)
-                callback.processAppeared(viewHolder, record.preInfo, record.postInfo);
-            } else if ((record.flags & FLAG_PRE_AND_POST) == FLAG_PRE_AND_POST) {
+                callback.processAppeared(viewHolder, preInfo, postInfo);
+            } else if ((flags & FLAG_PRE_AND_POST) == FLAG_PRE_AND_POST) {
                 // Persistent in both passes. Animate persistence
-                callback.processPersistent(viewHolder, record.preInfo, record.postInfo);
-            } else if ((record.flags & FLAG_PRE) != 0) {
+                callback.processPersistent(viewHolder, preInfo, postInfo);
+            } else if ((flags & FLAG_PRE) != 0) {
                 // Was in pre-layout, never been added to post layout
-                callback.processDisappeared(viewHolder, record.preInfo, null);
-            } else if ((record.flags & FLAG_POST) != 0) {
+                callback.processDisappeared(viewHolder, preInfo, null);
+            } else if ((flags & FLAG_POST) != 0) {
                 // Was not in pre-layout, been added to post layout
-                callback.processAppeared(viewHolder, record.preInfo, record.postInfo);
-            } else if ((record.flags & FLAG_APPEAR) != 0) {
+                callback.processAppeared(viewHolder, preInfo, postInfo);
+            } else if ((flags & FLAG_APPEAR) != 0) {
                 // Scrap view. RecyclerView will handle removing/recycling this.
             } else if (DEBUG) {
                 throw new IllegalStateException("record without any reasonable flag combination:/");
             }
-            InfoRecord.recycle(record);
         }
     }
 
@@ -265,14 +360,19 @@ class ViewInfoStore {
                 break;
             }
         }
-        final InfoRecord info = mLayoutHolderMap.remove(holder);
-        if (info != null) {
-            InfoRecord.recycle(info);
+        final int slot = findSlot(holder);
+        if (slot != NO_SLOT) {
+            removeSlot(slot);
         }
     }
 
     void onDetach() {
-        InfoRecord.drainCache();
+        // give the arrays back, they are sized for the largest layout seen while attached
+        clear();
+        mSlotHolders = EMPTY_HOLDERS;
+        mSlotFlags = EMPTY_FLAGS;
+        mSlotPreInfos = EMPTY_INFOS;
+        mSlotPostInfos = EMPTY_INFOS;
     }
 
     public void onViewDetached(ViewHolder viewHolder) {
@@ -289,6 +389,9 @@ class ViewInfoStore {
         void unused(ViewHolder holder);
     }
 
+    /**
+     * Flags of a record. A record only exists as a slot of the store's parallel arrays.
+     */
     static class InfoRecord {
         // disappearing list
         static final int FLAG_DISAPPEARED = 1;
@@ -301,29 +404,8 @@ class ViewInfoStore {
         static final int FLAG_APPEAR_AND_DISAPPEAR = FLAG_APPEAR | FLAG_DISAPPEARED;
         static final int FLAG_PRE_AND_POST = FLAG_PRE | FLAG_POST;
         static final int FLAG_APPEAR_PRE_AND_POST = FLAG_APPEAR | FLAG_PRE | FLAG_POST;
-        int flags;
-        @Nullable ItemHolderInfo preInfo;
-        @Nullable ItemHolderInfo postInfo;
-        static Pools.Pool<InfoRecord> sPool = new Pools.SimplePool<>(20);
 
         private InfoRecord() {
         }
-
-        static InfoRecord obtain() {
-            InfoRecord record = sPool.acquire();
-            return record == null ? new InfoRecord() : record;
-        }
-
-        static void recycle(InfoRecord record) {
-            record.flags = 0;
-            record.preInfo = null;
-            record.postInfo = null;
-            sPool.release(record);
-        }
-
-        static void drainCache() {
-            //noinspection StatementWithEmptyBody
-            while (sPool.acquire() != null);
-        }
     }
 }
@@ -45,6 +45,7 @@ import android.view.ViewParent;
 import android.view.animation.Interpolator;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -272,8 +273,11 @@ public class ItemTouchHelper extends RecyclerView.ItemDecoration
     //re-used list for selecting a swap target
     private List<ViewHolder> mSwapTargets;
 
-    //re used for for sorting swap targets
-    private List<Integer> mDistances;
+    //re used for for sorting swap targets, mDistances[i] is the distance of mSwapTargets[i]
+    private int[] mDistances;
+
+    //children sorted along the scroll axis, rebuilt only when they move
+    private final ChildIntervalIndex mChildIndex = new ChildIntervalIndex();
 
     /**
      * If drag & drop is supported, we use child drawing order to bring them to front.
@@ -492,6 +496,7 @@ public class ItemTouchHelper extends RecyclerView.ItemDecoration
         mRecoverAnimations.clear();
         mOverdrawChild = null;
         mOverdrawChildPosition = -1;
+        mChildIndex.clear();
         releaseVelocityTracker();
     }
 
@@ -771,10 +776,9 @@ public class ItemTouchHelper extends RecyclerView.ItemDecoration
     private List<ViewHolder> findSwapTargets(ViewHolder viewHolder) {
         if (mSwapTargets == null) {
             mSwapTargets = new ArrayList<ViewHolder>();
-            mDistances = new ArrayList<Integer>();
+            mDistances = new int[8];
         } else {
             mSwapTargets.clear();
-            mDistances.clear();
         }
         final int margin = mCallback.getBoundingBoxMargin();
         final int left = Math.round(mSelectedStartX + mDx) - margin;
@@ -783,10 +787,12 @@ public class ItemTouchHelper extends RecyclerView.ItemDecoration
         final int bottom = top + viewHolder.itemView.getHeight() + 2 * margin;
         final int centerX = (left + right) / 2;
         final int centerY = (top + bottom) / 2;
-        final RecyclerView.LayoutManager lm = mRecyclerView.getLayoutManager();
-        final int childCount = lm.getChildCount();
-        for (int i = 0; i < childCount; i++) {
-            View other = lm.getChildAt(i);
+        final ChildIntervalIndex index = mChildIndex;
+        index.update(mRecyclerView);
+        final int end = index.mVertical ? bottom : right;
+        for (int i = index.findFirstOverlapCandidate(index.mVertical ? top : left);
+                i < index.mCount && index.mStarts[i] <= end; i++) {
+            View other = index.mViews[i];
             if (other == viewHolder.itemView) {
                 continue;//myself!
             }
@@ -800,23 +806,35 @@ public class ItemTouchHelper extends RecyclerView.ItemDecoration
                 final int dx = Math.abs(centerX - (other.getLeft() + other.getRight()) / 2);
                 final int dy = Math.abs(centerY - (other.getTop() + other.getBottom()) / 2);
                 final int dist = dx * dx + dy * dy;
-
-                int pos = 0;
-                final int cnt = mSwapTargets.size();
-                for (int j = 0; j < cnt; j++) {
-                    if (dist > mDistances.get(j)) {
-                        pos++;
-                    } else {
-                        break;
-                    }
-                }
-                mSwapTargets.add(pos, otherVh);
-                mDistances.add(pos, dist);
+                addSwapTarget(otherVh, dist);
             }
         }
         return mSwapTargets;
     }
 
+    /**
+     * Inserts the target into {@link #mSwapTargets} after the targets that are closer.
+     */
+    private void addSwapTarget(ViewHolder target, int dist) {
+        final int cnt = mSwapTargets.size();
+        int low = 0;
+        int high = cnt;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (mDistances[mid] < dist) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        if (cnt == mDistances.length) {
+            mDistances = Arrays.copyOf(mDistances, cnt * 2);
+        }
+        System.arraycopy(mDistances, low, mDistances, low + 1, cnt - low);
+        mDistances[low] = dist;
+        mSwapTargets.add(low, target);
+    }
+
     /**
      * Checks if we should swap w/ another view holder.
      */
@@ -844,7 +862,6 @@ public class ItemTouchHelper extends RecyclerView.ItemDecoration
         ViewHolder target = mCallback.chooseDropTarget(viewHolder, swapTargets, x, y);
         if (target == null) {
             mSwapTargets.clear();
-            mDistances.clear();
             return;
         }
         final int toPosition = target.getAdapterPosition();
@@ -858,10 +875,12 @@ public class ItemTouchHelper extends RecyclerView.ItemDecoration
 
     @Override
     public void onChildViewAttachedToWindow(View view) {
+        mChildIndex.invalidate();
     }
 
     @Override
     public void onChildViewDetachedFromWindow(View view) {
+        mChildIndex.invalidate();
         removeChildDrawingOrderCallbackIfNecessary(view);
         final ViewHolder holder = mRecyclerView.getChildViewHolder(view);
         if (holder == null) {
@@ -2408,4 +2427,90 @@ public class ItemTouchHelper extends RecyclerView.ItemDecoration
 
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * The children of the LayoutManager sorted by their start along the scroll axis, so that the
+     * ones overlapping a range can be found with a binary search instead of checking all of them.
+     * <p>
+     * The index is kept until the children are laid out, offset, attached or detached, so while
+     * the user drags over a still list, move events reuse it.
+     */
+    private static class ChildIntervalIndex {
+        View[] mViews = new View[0];
+        int[] mStarts = new int[0];
+        int mCount;
+        boolean mVertical;
+
+        // largest child size along the axis, children starting that far before a range may
+        // still overlap it
+        int mMaxSize;
+
+        private boolean mValid;
+        private int mGeneration;
+
+        void invalidate() {
+            mValid = false;
+        }
+
+        void clear() {
+            Arrays.fill(mViews, 0, mCount, null);
+            mCount = 0;
+            mValid = false;
+        }
+
+        void update(RecyclerView recyclerView) {
+            final RecyclerView.LayoutManager lm = recyclerView.getLayoutManager();
+            final boolean vertical = lm.canScrollVertically() || !lm.canScrollHorizontally();
+            final int childCount = lm.getChildCount();
+            if (mValid && mGeneration == recyclerView.getChildBoundsGeneration()
+                    && mVertical == vertical && mCount == childCount) {
+                return;
+            }
+            if (mViews.length < childCount) {
+                Arrays.fill(mViews, 0, mCount, null);
+                mViews = new View[childCount];
+                mStarts = new int[childCount];
+            }
+            int maxSize = 0;
+            for (int i = 0; i < childCount; i++) {
+                final View child = lm.getChildAt(i);
+                final int start = vertical ? child.getTop() : child.getLeft();
+                maxSize = Math.max(maxSize,
+                        vertical ? child.getBottom() - start : child.getRight() - start);
+                // insertion sort, children are laid out mostly in order
+                int j = i - 1;
+                while (j >= 0 && mStarts[j] > start) {
+                    mStarts[j + 1] = mStarts[j];
+                    mViews[j + 1] = mViews[j];
+                    j--;
+                }
+                mStarts[j + 1] = start;
+                mViews[j + 1] = child;
+            }
+            Arrays.fill(mViews, childCount, mCount > childCount ? mCount : childCount, null);
+            mCount = childCount;
+            mMaxSize = maxSize;
+            mVertical = vertical;
+            mGeneration = recyclerView.getChildBoundsGeneration();
+            mValid = true;
+        }
+
+        /**
+         * Returns the index of the first child that may end at or after the given position.
+         */
+        int findFirstOverlapCandidate(int position) {
+            final long min = (long) position - mMaxSize;
+            int low = 0;
+            int high = mCount;
+            while (low < high) {
+                final int mid = (low + high) >>> 1;
+                if (mStarts[mid] < min) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+}